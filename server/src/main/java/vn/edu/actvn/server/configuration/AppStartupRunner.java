@@ -16,6 +16,7 @@ import vn.edu.actvn.server.entity.Role;
 import vn.edu.actvn.server.entity.User;
 import vn.edu.actvn.server.repository.RoleRepository;
 import vn.edu.actvn.server.repository.UserRepository;
+import vn.edu.actvn.server.service.FinanceRollupService;
 
 @Component
 @RequiredArgsConstructor
@@ -25,6 +26,7 @@ public class AppStartupRunner implements CommandLineRunner {
         private final UserRepository userRepository;
         private final RoleRepository roleRepository;
         private final PasswordEncoder passwordEncoder;
+        private final FinanceRollupService financeRollupService;
 
         private static final String ADMIN_USER_NAME = "admin";
         private static final String ADMIN_PASSWORD = "admin";
@@ -109,6 +111,9 @@ public class AppStartupRunner implements CommandLineRunner {
                         log.warn("admin user has been created with default password: admin, please change it");
                 }
 
+                // Backfill bảng tổng hợp tài chính cho dữ liệu có từ trước khi có bảng này
+                financeRollupService.rebuildIfEmpty();
+
                 log.warn("Application initialization completed .....");
         }
 }
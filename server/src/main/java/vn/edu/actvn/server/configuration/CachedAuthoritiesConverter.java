@@ -0,0 +1,84 @@
+package vn.edu.actvn.server.configuration;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import vn.edu.actvn.server.constant.Permission;
+import vn.edu.actvn.server.utils.PermissionBitmask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Builds authorities from either the compact {@code role}/{@code perm}/{@code pv} claims or the legacy
+ * space separated {@code scope} claim. Only a handful of distinct combinations exist (roughly one per role),
+ * so each is turned into an immutable list once and shared by every later request.
+ */
+public class CachedAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+    public static final String ROLE_CLAIM = "role";
+    public static final String PERMISSION_CLAIM = "perm";
+    public static final String PERMISSION_VERSION_CLAIM = "pv";
+    public static final String SCOPE_CLAIM = "scope";
+
+    private static final int MAX_CACHED_ENTRIES = 1024;
+
+    private final Map<String, Map<String, List<GrantedAuthority>>> compactCache = new ConcurrentHashMap<>();
+    private final Map<String, List<GrantedAuthority>> scopeCache = new ConcurrentHashMap<>();
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        String bitmask = jwt.getClaimAsString(PERMISSION_CLAIM);
+        if (bitmask != null) {
+            if (!PermissionBitmask.VERSION.equals(jwt.getClaimAsString(PERMISSION_VERSION_CLAIM))) {
+                throw new InvalidBearerTokenException("Permission claim version mismatch");
+            }
+            String role = jwt.getClaimAsString(ROLE_CLAIM);
+            Map<String, List<GrantedAuthority>> byBitmask = compactCache
+                    .computeIfAbsent(role == null ? "" : role, r -> new ConcurrentHashMap<>());
+            return lookup(byBitmask, bitmask, () -> fromCompact(role, bitmask));
+        }
+
+        String scope = jwt.getClaimAsString(SCOPE_CLAIM);
+        if (scope == null || scope.isBlank()) return List.of();
+        return lookup(scopeCache, scope, () -> fromScope(scope));
+    }
+
+    private List<GrantedAuthority> lookup(Map<String, List<GrantedAuthority>> cache, String key,
+                                          Supplier<List<GrantedAuthority>> loader) {
+        List<GrantedAuthority> authorities = cache.get(key);
+        if (authorities != null) return authorities;
+
+        authorities = loader.get();
+        if (cache.size() >= MAX_CACHED_ENTRIES) cache.clear();
+        cache.put(key, authorities);
+        return authorities;
+    }
+
+    // Giữ ROLE_ đứng đầu giống thứ tự của chuỗi scope
+    private static List<GrantedAuthority> fromCompact(String role, String bitmask) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (role != null) authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        try {
+            for (Permission permission : PermissionBitmask.decode(bitmask)) {
+                authorities.add(new SimpleGrantedAuthority(permission.getPermission()));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidBearerTokenException("Malformed permission claim");
+        }
+        return List.copyOf(authorities);
+    }
+
+    private static List<GrantedAuthority> fromScope(String scope) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String authority : scope.trim().split("\\s+")) {
+            authorities.add(new SimpleGrantedAuthority(authority));
+        }
+        return List.copyOf(authorities);
+    }
+}
@@ -0,0 +1,219 @@
+package vn.edu.actvn.server.configuration;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cross-node messaging over PostgreSQL {@code LISTEN/NOTIFY}, shared by every feature that keeps per-node state in
+ * sync (token revocations, cached current users, second-level cache, suggestion index). Each node holds one
+ * connection outside the pool, listens on the channels features {@link #subscribe subscribed} to and hands them what
+ * other nodes publish; a node's own messages are skipped. A pooler in transaction mode (PgBouncer, Neon's {@code -pooler} endpoint) never delivers
+ * notifications to a listening session, so the listener connects to {@code cluster.notify.url}, or else to the
+ * datasource URL with Neon's {@code -pooler} suffix removed. After every connect it sends itself a probe through the
+ * application pool and logs an error if the probe does not arrive, rather than silently missing other nodes' changes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ClusterNotifications {
+    static final long MIN_BACKOFF_MILLIS = 1_000;
+    static final long MAX_BACKOFF_MILLIS = 30_000;
+    static final int POLL_TIMEOUT_MILLIS = 5_000;
+    static final Duration PROBE_TIMEOUT = Duration.ofSeconds(10);
+    static final String PROBE_CHANNEL = "cluster_probe";
+
+    // Payload: node|nội dung
+    static final String SEPARATOR = "|";
+    static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    // Neon: host có hậu tố -pooler đi qua PgBouncer, bỏ hậu tố là endpoint kết nối thẳng tới Postgres
+    static final Pattern NEON_POOLER_HOST = Pattern.compile("(//[^/:?]+)-pooler\\.");
+
+    DataSourceProperties dataSourceProperties;
+    JdbcTemplate jdbcTemplate;
+
+    String nodeId = UUID.randomUUID().toString();
+    Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    @NonFinal
+    @Value("${cluster.notify.enabled:true}")
+    boolean enabled;
+
+    // Kết nối thẳng tới Postgres (không qua pooler) cho LISTEN; để trống thì suy ra từ spring.datasource.url
+    @NonFinal
+    @Value("${cluster.notify.url:}")
+    String url;
+
+    @NonFinal
+    volatile Thread listener;
+
+    public interface Subscriber {
+        void onMessage(String message);
+
+        // Gọi mỗi lần vừa LISTEN xong; thông báo gửi trước đó (lúc chưa nghe hoặc mất kết nối) đã mất
+        default void onConnected(boolean reconnected) {
+        }
+    }
+
+    // Đăng ký trước ApplicationReadyEvent (vd. trong @PostConstruct); mỗi kênh một subscriber
+    public void subscribe(String channel, Subscriber subscriber) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        if (!enabled) return;
+        subscribers.put(channel, subscriber);
+    }
+
+    // Chạy trên connection của transaction hiện tại nếu có: tới các node khác khi (và chỉ khi) transaction đó commit
+    public void publish(String channel, String message) {
+        if (!enabled) return;
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, envelope(message));
+    }
+
+    // Payload kèm id node gửi, cho nơi phải tự gọi pg_notify trên connection của mình (vd. Session.doWork)
+    public String envelope(String message) {
+        return nodeId + SEPARATOR + message;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || subscribers.isEmpty()) return;
+        String jdbcUrl = listenUrl(url, dataSourceProperties.determineUrl());
+        // Gán trước khi start: vòng lặp trong listen() dừng ngay nếu listener chưa phải thread hiện tại
+        Thread thread = Thread.ofPlatform().daemon().name("cluster-notifications").unstarted(() -> listen(jdbcUrl));
+        listener = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = listener;
+        listener = null;
+        if (thread != null) thread.interrupt();
+    }
+
+    static String listenUrl(String configured, String datasourceUrl) {
+        if (configured != null && !configured.isBlank()) return configured;
+        Matcher pooler = NEON_POOLER_HOST.matcher(datasourceUrl);
+        if (!pooler.find()) return datasourceUrl;
+        log.info("Datasource goes through the Neon pooler, listening for cluster notifications on the direct endpoint");
+        return pooler.replaceFirst("$1.");
+    }
+
+    private void listen(String jdbcUrl) {
+        long backoff = MIN_BACKOFF_MILLIS;
+        boolean connectedBefore = false;
+        while (listener == Thread.currentThread()) {
+            try (Connection connection = DriverManager.getConnection(jdbcUrl,
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + PROBE_CHANNEL);
+                    for (String channel : subscribers.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                boolean reconnected = connectedBefore;
+                subscribers.forEach((channel, subscriber) -> connected(channel, subscriber, reconnected));
+                connectedBefore = true;
+                backoff = MIN_BACKOFF_MILLIS;
+                log.info("Listening for cluster notifications on {}", subscribers.keySet());
+
+                String probe = sendProbe();
+                long probeDeadline = System.nanoTime() + PROBE_TIMEOUT.toNanos();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (listener == Thread.currentThread()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            if (!PROBE_CHANNEL.equals(notification.getName())) {
+                                dispatch(notification.getName(), notification.getParameter());
+                            } else if (notification.getParameter().equals(probe)) {
+                                probe = null;
+                            }
+                        }
+                    }
+                    if (probe != null && System.nanoTime() - probeDeadline > 0) {
+                        log.error("Cluster notifications are not reaching this node: changes made on other nodes "
+                                + "(token revocations, cache invalidations, search index) will be missed. Set "
+                                + "cluster.notify.url to a direct, non-pooled PostgreSQL connection");
+                        probe = null;
+                    }
+                    if ((notifications == null || notifications.length == 0) && !connection.isValid(5)) {
+                        throw new SQLException("Listener connection lost");
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (listener != Thread.currentThread()) return;
+                log.warn("Cluster notification listener disconnected, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // Gửi qua pool của ứng dụng (có thể là pooler) rồi chờ nhận lại trên kết nối LISTEN
+    private String sendProbe() {
+        String probe = envelope(UUID.randomUUID().toString());
+        try {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", PROBE_CHANNEL, probe);
+            return probe;
+        } catch (RuntimeException e) {
+            log.warn("Cannot send cluster notification probe: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    void dispatch(String channel, String payload) {
+        Subscriber subscriber = subscribers.get(channel);
+        int separator = payload.indexOf(SEPARATOR);
+        if (subscriber == null || separator <= 0) {
+            log.warn("Ignoring malformed cluster notification on {}: {}", channel, payload);
+            return;
+        }
+        if (payload.substring(0, separator).equals(nodeId)) return;
+        try {
+            subscriber.onMessage(payload.substring(separator + 1));
+        } catch (RuntimeException e) {
+            log.warn("Cannot apply cluster notification on {} [{}]: {}", channel, payload, e.getMessage());
+        }
+    }
+
+    private void connected(String channel, Subscriber subscriber, boolean reconnected) {
+        try {
+            subscriber.onConnected(reconnected);
+        } catch (RuntimeException e) {
+            log.warn("Cannot resynchronize {} after connecting: {}", channel, e.getMessage());
+        }
+    }
+}
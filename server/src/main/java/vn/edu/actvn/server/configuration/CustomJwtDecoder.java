@@ -1,52 +1,91 @@
 package vn.edu.actvn.server.configuration;
 
 import java.text.ParseException;
-import java.util.Objects;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
 import org.springframework.stereotype.Component;
 
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 
-import vn.edu.actvn.server.dto.request.auth.IntrospectRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.service.AuthenticationService;
 
+/**
+ * Parses and verifies the bearer token exactly once, then builds the Spring {@link Jwt}
+ * from the already parsed claims instead of handing the raw token to a second decoder.
+ */
 @Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class CustomJwtDecoder implements JwtDecoder {
-    @Value("${jwt.signerKey}")
-    private String signerKey;
+    AuthenticationService authenticationService;
 
-    @Autowired
-    private AuthenticationService authenticationService;
+    Converter<Map<String, Object>, Map<String, Object>> claimSetConverter =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
 
-    private NimbusJwtDecoder nimbusJwtDecoder = null;
+    Timer parseTimer;
+    Timer verifyTimer;
+    Timer revocationTimer;
+    Timer convertTimer;
+
+    public CustomJwtDecoder(AuthenticationService authenticationService, MeterRegistry meterRegistry) {
+        this.authenticationService = authenticationService;
+        this.parseTimer = stageTimer(meterRegistry, "parse");
+        this.verifyTimer = stageTimer(meterRegistry, "verify");
+        this.revocationTimer = stageTimer(meterRegistry, "revocation");
+        this.convertTimer = stageTimer(meterRegistry, "convert");
+    }
 
     @Override
     public Jwt decode(String token) throws JwtException {
-
         try {
-            var response = authenticationService.introspect(
-                    IntrospectRequest.builder().token(token).build());
+            long start = System.nanoTime();
+            SignedJWT signedJWT = SignedJWT.parse(token);
+            JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
+            start = record(parseTimer, start);
 
-            if (!response.isValid()) throw new JwtException("Token invalid");
+            authenticationService.verifySignature(signedJWT);
+            start = record(verifyTimer, start);
+
+            authenticationService.verifyNotRevoked(claimsSet);
+            start = record(revocationTimer, start);
+
+            Jwt jwt = Jwt.withTokenValue(token)
+                    .headers(headers -> headers.putAll(signedJWT.getHeader().toJSONObject()))
+                    .claims(claims -> claims.putAll(claimSetConverter.convert(claimsSet.getClaims())))
+                    .build();
+            record(convertTimer, start);
+
+            return jwt;
+        } catch (AppException e) {
+            throw new JwtException("Token invalid");
         } catch (JOSEException | ParseException e) {
             throw new JwtException(e.getMessage());
         }
+    }
 
-        if (Objects.isNull(nimbusJwtDecoder)) {
-            SecretKeySpec secretKeySpec = new SecretKeySpec(signerKey.getBytes(), "HS512");
-            nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(secretKeySpec)
-                    .macAlgorithm(MacAlgorithm.HS512)
-                    .build();
-        }
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("jwt.decode")
+                .description("Time spent in each stage of bearer token decoding")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
 
-        return nimbusJwtDecoder.decode(token);
+    private static long record(Timer timer, long start) {
+        long now = System.nanoTime();
+        timer.record(now - start, TimeUnit.NANOSECONDS);
+        return now;
     }
 }
@@ -0,0 +1,107 @@
+package vn.edu.actvn.server.configuration;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the database objects that {@code @Table(indexes = ...)} cannot describe: the {@code f_unaccent} fold
+ * function and the trigram expression indexes used by
+ * {@link vn.edu.actvn.server.repository.specification.SearchSpecification#containsFolded}. Every statement is
+ * idempotent; a failure (missing extension or privilege) only costs performance, so it is logged and skipped. Changes
+ * to existing data and constraints that queries depend on belong in the Flyway migrations
+ * ({@link SchemaMigrationConfig}), which abort the startup when they fail.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DatabaseIndexInitializer {
+    JdbcTemplate jdbcTemplate;
+
+    @NonFinal
+    @Value("${database.index-init.enabled:true}")
+    boolean enabled;
+
+    static final List<String> EXTENSIONS = List.of(
+            "CREATE EXTENSION IF NOT EXISTS unaccent",
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm"
+    );
+
+    // unaccent() chỉ là STABLE nên không dùng trực tiếp trong index được; bọc lại với từ điển cố định
+    static final String FOLD_FUNCTION = """
+            CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$
+            """;
+
+    // Không có extension unaccent: vẫn tạo hàm để truy vấn chạy được, chỉ mất phần bỏ dấu
+    static final String FOLD_FUNCTION_FALLBACK = """
+            CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $$ SELECT $1 $$
+            """;
+
+    // Biểu thức phải trùng với SearchSpecification.fold(): lower(f_unaccent(cột))
+    static final Map<String, String> INDEXES = Map.of(
+            "idx_users_full_name_trgm", "users USING gin (lower(f_unaccent(full_name)) gin_trgm_ops)",
+            "idx_users_email_trgm", "users USING gin (lower(f_unaccent(email)) gin_trgm_ops)"
+    );
+
+    // idx_attendance_student_student_id được thay bằng idx_attendance_student_student_status (cùng cột đầu)
+    static final List<String> OBSOLETE_INDEXES = List.of("idx_users_email_lower", "idx_attendance_student_student_id");
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!enabled) return;
+        EXTENSIONS.forEach(this::execute);
+        if (!execute(FOLD_FUNCTION)) {
+            execute(FOLD_FUNCTION_FALLBACK);
+        }
+        OBSOLETE_INDEXES.forEach(name -> execute("DROP INDEX CONCURRENTLY IF EXISTS " + name));
+        INDEXES.forEach(this::createIndex);
+    }
+
+    // CONCURRENTLY để không khoá ghi bảng users khi tạo index lần đầu trên dữ liệu lớn
+    private void createIndex(String name, String definition) {
+        Boolean valid;
+        try {
+            valid = jdbcTemplate.query(
+                    "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?",
+                    rs -> rs.next() ? rs.getBoolean(1) : null, name);
+        } catch (DataAccessException e) {
+            log.warn("Skipping index {}: {}", name, e.getMostSpecificCause().getMessage());
+            return;
+        }
+        if (Boolean.TRUE.equals(valid)) return;
+        if (valid != null) {
+            // Lần tạo trước bị ngắt giữa chừng để lại index INVALID, IF NOT EXISTS sẽ bỏ qua nó
+            execute("DROP INDEX CONCURRENTLY IF EXISTS " + name);
+        }
+        long start = System.currentTimeMillis();
+        if (execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + definition)) {
+            log.info("Created index {} in {} ms", name, System.currentTimeMillis() - start);
+        }
+    }
+
+    private boolean execute(String statement) {
+        try {
+            jdbcTemplate.execute(statement);
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Skipping statement [{}]: {}", statement.strip(), e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package vn.edu.actvn.server.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// Tách khỏi SecurityConfig: SecurityConfig phụ thuộc CustomJwtDecoder -> AuthenticationService -> PasswordHashingService,
+// nếu PasswordEncoder cũng nằm trong SecurityConfig thì sẽ tạo vòng phụ thuộc lúc khởi động
+@Configuration
+@Slf4j
+public class PasswordEncoderConfig {
+
+    @Bean
+    PasswordEncoder passwordEncoder(
+            @Value("${security.bcrypt.strength:10}") int strength,
+            @Value("${security.bcrypt.target-millis:0}") long targetMillis) {
+        if (targetMillis > 0) {
+            strength = calibrateStrength(strength, targetMillis);
+        }
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // Mỗi bậc cost tăng gấp đôi thời gian hash: đo ở mức tối thiểu rồi tăng dần tới khi chạm ngưỡng mục tiêu.
+    // Không bao giờ hạ thấp hơn strength đã cấu hình; hash cũ vẫn verify được vì cost nằm trong chuỗi hash.
+    private static int calibrateStrength(int minStrength, long targetMillis) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration"); // warm up
+        long start = System.nanoTime();
+        probe.encode("calibration");
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+        int strength = minStrength;
+        while (strength < 31 && millis * 2 <= targetMillis) {
+            strength++;
+            millis *= 2;
+        }
+        log.info("BCrypt strength calibrated to {} (~{} ms per hash, target {} ms)",
+                strength, Math.round(millis), targetMillis);
+        return strength;
+    }
+}
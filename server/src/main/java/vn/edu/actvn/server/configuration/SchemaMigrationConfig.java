@@ -0,0 +1,40 @@
+package vn.edu.actvn.server.configuration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+/**
+ * Runs the Flyway migrations in {@code db/migration} after Hibernate has created or updated the tables
+ * ({@code ddl-auto: update}) rather than before, as Spring Boot would: the migrations backfill, deduplicate and
+ * constrain tables and columns that Hibernate adds, so those must exist first. Migrations still run while the
+ * context starts, before the web server accepts requests, and a failing migration aborts the startup. Flyway holds a
+ * PostgreSQL advisory lock while migrating, so nodes starting together apply each migration exactly once. Databases
+ * created before Flyway was introduced have no history table and are baselined at version 0, so every migration
+ * runs on them once.
+ */
+@Configuration
+public class SchemaMigrationConfig {
+
+    // Không chạy ở chỗ mặc định (trước khi tạo EntityManagerFactory), xem schemaMigration
+    @Bean
+    FlywayMigrationStrategy deferredFlywayMigration() {
+        return flyway -> {
+        };
+    }
+
+    @Bean
+    FlywayConfigurationCustomizer flywayBaseline() {
+        return configuration -> configuration.baselineOnMigrate(true).baselineVersion("0");
+    }
+
+    @Bean
+    @DependsOn("entityManagerFactory")
+    MigrateResult schemaMigration(Flyway flyway) {
+        return flyway.migrate();
+    }
+}
@@ -0,0 +1,69 @@
+package vn.edu.actvn.server.configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for reference data, backed by Caffeine through JCache. Each region is bounded and
+ * expires after write; {@code cache.l2.max-entries} / {@code cache.l2.ttl} set the defaults and
+ * {@code cache.l2.regions.<region>.max-entries|ttl} override one region. With {@code cache.l2.statistics=true}
+ * Hibernate collects hit/miss/put counts per region, published as {@code hibernate.second.level.cache.*} metrics.
+ * Other nodes are kept consistent by {@link SecondLevelCacheInvalidator}.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String ROLE = "role";
+    public static final String ROLE_PERMISSIONS = "role.permissions";
+    public static final String USER = "user";
+    public static final String CLASS = "class";
+    public static final String CLASS_DAYS_OF_WEEK = "class.days-of-week";
+
+    static final List<String> REGIONS = List.of(ROLE, ROLE_PERMISSIONS, USER, CLASS, CLASS_DAYS_OF_WEEK);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            Environment environment,
+            @Value("${cache.l2.max-entries:10000}") long defaultMaxEntries,
+            @Value("${cache.l2.ttl:PT30M}") Duration defaultTtl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        for (String region : REGIONS) {
+            String prefix = "cache.l2.regions." + region;
+            long maxEntries = environment.getProperty(prefix + ".max-entries", Long.class, defaultMaxEntries);
+            Duration ttl = environment.getProperty(prefix + ".ttl", Duration.class, defaultTtl);
+
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(
+            CacheManager hibernateCacheManager,
+            @Value("${cache.l2.enabled:true}") boolean enabled,
+            @Value("${cache.l2.statistics:false}") boolean statistics) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            // Region không khai báo trong REGIONS vẫn chạy được nhưng không giới hạn kích thước, nên cảnh báo
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, statistics);
+        };
+    }
+}
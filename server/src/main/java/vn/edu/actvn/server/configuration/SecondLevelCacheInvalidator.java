@@ -0,0 +1,183 @@
+package vn.edu.actvn.server.configuration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Keeps the second-level cache of every node consistent. Hibernate already updates the local regions when an
+ * entity or collection is written; this component additionally sends {@code pg_notify} on the writing
+ * transaction's connection, so PostgreSQL delivers it to the other nodes only if that transaction commits, and
+ * each node evicts the entry named in the notifications it receives through {@link ClusterNotifications}. Every
+ * time the listening connection is (re)established the node evicts everything, since notifications sent while it
+ * was not listening are lost; the region TTL bounds any remaining staleness.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SecondLevelCacheInvalidator implements PostUpdateEventListener, PostDeleteEventListener,
+        PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+    static final String CHANNEL = "l2_cache_evict";
+
+    // Payload: loại|tên|id; E = entity, C = collection, R = cả region, A = toàn bộ cache
+    static final String SEPARATOR = "|";
+
+    EntityManagerFactory entityManagerFactory;
+    EntityManager entityManager;
+    ClusterNotifications clusterNotifications;
+
+    @NonFinal
+    @Value("${cache.l2.cluster-invalidation.enabled:true}")
+    boolean enabled;
+
+    @NonFinal
+    SessionFactoryImplementor sessionFactory;
+
+    @PostConstruct
+    void registerListeners() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        if (!isActive()) return;
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+        clusterNotifications.subscribe(CHANNEL, new ClusterNotifications.Subscriber() {
+            @Override
+            public void onMessage(String message) {
+                evict(message);
+            }
+
+            // Có thể đã lỡ thông báo trong lúc chưa nghe (hoặc mất kết nối)
+            @Override
+            public void onConnected(boolean reconnected) {
+                sessionFactory.getCache().evictAll();
+            }
+        });
+    }
+
+    // Dùng cho cập nhật hàng loạt (bulk JPQL/native) không đi qua entity: báo các node khác bỏ cả region của entity.
+    // Phải gọi trong transaction đang ghi để thông báo đi cùng lúc commit
+    public void evictRegion(Class<?> entityClass) {
+        if (!isActive()) return;
+        publish(entityManager.unwrap(Session.class), "R", entityClass.getName(), "");
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publishEntity(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publishEntity(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        publishCollection(event);
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        publishCollection(event);
+    }
+
+    @Override
+    public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+        publishCollection(event);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void publishEntity(EventSource session, EntityPersister persister, Object id) {
+        if (!persister.canWriteToCache() || id == null) return;
+        publish(session, "E", persister.getEntityName(), id.toString());
+    }
+
+    private void publishCollection(AbstractCollectionEvent event) {
+        String role = event.getCollection().getRole();
+        Object ownerId = event.getAffectedOwnerIdOrNull();
+        if (role == null || ownerId == null) return;
+        if (!sessionFactory.getMappingMetamodel().getCollectionDescriptor(role).hasCache()) return;
+        publish(event.getSession(), "C", role, ownerId.toString());
+    }
+
+    // Chạy trên connection của transaction đang ghi: NOTIFY chỉ được gửi đi khi transaction commit
+    private void publish(Session session, String type, String name, String id) {
+        String payload = clusterNotifications.envelope(String.join(SEPARATOR, type, name, id));
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                statement.setString(1, CHANNEL);
+                statement.setString(2, payload);
+                statement.execute();
+            }
+        });
+    }
+
+    void evict(String message) {
+        String[] parts = message.split("\\" + SEPARATOR, 3);
+        Cache cache = sessionFactory.getCache();
+        try {
+            switch (parts[0]) {
+                case "E" -> {
+                    EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(parts[1]);
+                    cache.evictEntityData(parts[1], persister.getIdentifierMapping().getJavaType().fromString(parts[2]));
+                }
+                case "C" -> {
+                    CollectionPersister persister = sessionFactory.getMappingMetamodel().getCollectionDescriptor(parts[1]);
+                    Object ownerId = persister.getOwnerEntityPersister().getIdentifierMapping().getJavaType()
+                            .fromString(parts[2]);
+                    cache.evictCollectionData(parts[1], ownerId);
+                }
+                case "R" -> cache.evictEntityData(parts[1]);
+                default -> cache.evictAll();
+            }
+        } catch (RuntimeException e) {
+            // Không nhận ra entity/collection (node khác chạy phiên bản khác): bỏ hết cho an toàn
+            log.warn("Evicting whole second-level cache for unrecognized message [{}]: {}", message, e.getMessage());
+            cache.evictAll();
+        }
+    }
+
+    private boolean isActive() {
+        return enabled
+                && clusterNotifications.isEnabled()
+                && sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()
+                && sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+}
@@ -0,0 +1,11 @@
+package vn.edu.actvn.server.constant;
+
+import java.time.Duration;
+
+public class TokenPolicy {
+    // Độ lệch đồng hồ cho phép khi kiểm tra exp (như JwtTimestampValidator của Spring). Token còn được chấp nhận tới
+    // exp + CLOCK_SKEW nên token đã thu hồi cũng phải được giữ trong danh sách thu hồi tới lúc đó
+    public static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+
+    private TokenPolicy() {}
+}
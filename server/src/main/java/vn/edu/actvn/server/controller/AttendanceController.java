@@ -9,13 +9,18 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.attendance.AttendanceSearchRequest;
 import vn.edu.actvn.server.dto.request.attendance.AttendanceUpdateRequest;
+import vn.edu.actvn.server.dto.request.attendance.StudentAttendanceRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
 import vn.edu.actvn.server.dto.response.attendance.AttendanceResponse;
 import vn.edu.actvn.server.entity.Attendance;
 import vn.edu.actvn.server.service.AttendanceService;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+
+import java.util.List;
 
-import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/attendances")
@@ -56,6 +61,18 @@ public class AttendanceController {
                 .build();
     }
 
+    @PatchMapping("/{id}/students")
+    @Operation(summary = "Update only the listed students of an attendance")
+    public ApiResponse<AttendanceResponse> patchStudentAttendances(
+            @PathVariable("id") String id,
+            @RequestBody List<StudentAttendanceRequest> studentAttendances
+    ) {
+        return ApiResponse.<AttendanceResponse>builder()
+                .result(attendanceService.patchStudentAttendances(id, studentAttendances))
+                .message("Attendance updated successfully")
+                .build();
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete attendance by ID for debugging purposes")
     public ApiResponse<String> delete(@PathVariable String id) {
@@ -83,15 +100,27 @@ public class AttendanceController {
     @GetMapping
     @Operation(summary = "Get all attendances with pagination and sorting")
     public ApiResponse<Page<AttendanceResponse>> getAllAttendances(
-            @RequestParam(value = "studentId", required = false) String studentId,
-            @RequestParam(value = "classId", required = false) String classId,
-            @RequestParam(value = "date", required = false) LocalDate date,
+            @ParameterObject AttendanceSearchRequest request,
             @ParameterObject @PageableDefault(sort = "date", direction = Sort.Direction.DESC) Pageable pageable
     ) {
-        Page<AttendanceResponse> attendances = attendanceService.getAll(studentId,classId, date, pageable);
+        Page<AttendanceResponse> attendances = attendanceService.getAll(request, pageable);
         return ApiResponse.<Page<AttendanceResponse>>builder()
                 .result(attendances)
                 .message("Fetched all attendances")
                 .build();
     }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll attendances with a continuation cursor",
+            description = "Keyset pagination without total count: pass nextCursor of the previous page as cursor")
+    public ApiResponse<CursorPage<AttendanceResponse>> scrollAttendances(
+            @ParameterObject AttendanceSearchRequest request,
+            @ParameterObject CursorRequest cursor,
+            @ParameterObject Sort sort
+    ) {
+        return ApiResponse.<CursorPage<AttendanceResponse>>builder()
+                .result(attendanceService.scroll(request, cursor, sort))
+                .message("Fetched attendances")
+                .build();
+    }
 }
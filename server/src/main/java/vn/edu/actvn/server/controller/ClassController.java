@@ -12,14 +12,16 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
 import vn.edu.actvn.server.dto.request.ListStringIdRequest;
 import vn.edu.actvn.server.dto.request.StringIdRequest;
 import vn.edu.actvn.server.dto.request.entityclass.ClassUpdateRequest;
 import vn.edu.actvn.server.dto.request.entityclass.CreateClassRequest;
 import vn.edu.actvn.server.dto.response.entityclass.ClassResponse;
 import vn.edu.actvn.server.dto.response.ApiResponse;
-import vn.edu.actvn.server.entity.EntityClass;
 import vn.edu.actvn.server.service.ClassService;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
 
 import java.util.List;
 
@@ -57,15 +59,25 @@ public class ClassController {
     @GetMapping
     @Operation(summary = "Get all classes")
     public ApiResponse<Page<ClassResponse>> getAllClasses(
-            @RequestParam (required = false) String studentId,
-            @RequestParam (required = false) String teacherId,
-            @RequestParam (required = false) String className,
-            @RequestParam (required = false) Integer grade,
-            @RequestParam (required = false)EntityClass.Status status,
+            @ParameterObject ClassSearchRequest request,
             @ParameterObject Pageable pageable
             ) {
         return ApiResponse.<Page<ClassResponse>>builder()
-                .result(classService.getClasses(studentId,teacherId,className,grade, status,pageable))
+                .result(classService.getClasses(request, pageable))
+                .message("Class list retrieved successfully")
+                .build();
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll classes with a continuation cursor",
+            description = "Keyset pagination without total count: pass nextCursor of the previous page as cursor")
+    public ApiResponse<CursorPage<ClassResponse>> scrollClasses(
+            @ParameterObject ClassSearchRequest request,
+            @ParameterObject CursorRequest cursor,
+            @ParameterObject Sort sort
+    ) {
+        return ApiResponse.<CursorPage<ClassResponse>>builder()
+                .result(classService.scrollClasses(request, cursor, sort))
                 .message("Class list retrieved successfully")
                 .build();
     }
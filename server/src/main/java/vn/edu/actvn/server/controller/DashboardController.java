@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -35,12 +36,22 @@ public class DashboardController {
     }
 
     @GetMapping("/admin/analytics")
-    public ApiResponse<AdminAnalyticsResponse> getAdminAnalytics() {
+    public ApiResponse<AdminAnalyticsResponse> getAdminAnalytics(
+            @RequestParam(required = false) Integer year
+    ) {
         return ApiResponse.<AdminAnalyticsResponse>builder()
-                .result(dashboardService.getAnalyticsDashboard())
+                .result(dashboardService.getAnalyticsDashboard(year))
                 .message("Fetched admin analytics")
                 .build();
     }
 
+    @PostMapping("/admin/finance-rollup/rebuild")
+    public ApiResponse<Integer> rebuildFinanceRollup() {
+        return ApiResponse.<Integer>builder()
+                .result(dashboardService.rebuildFinanceRollup())
+                .message("Rebuilt monthly finance rollup")
+                .build();
+    }
+
 
 }
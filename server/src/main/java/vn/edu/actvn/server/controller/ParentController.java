@@ -6,10 +6,9 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.request.StringIdRequest;
 import vn.edu.actvn.server.dto.request.user.CreateParentRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateParentRequest;
@@ -17,6 +16,8 @@ import vn.edu.actvn.server.dto.response.ApiResponse;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.service.ParentService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/parents")
 @RequiredArgsConstructor
@@ -27,23 +28,27 @@ public class ParentController {
     @GetMapping
     @Operation(summary = "Get all parents")
     public ApiResponse<Page<UserResponse>> getAllParents(
-            @RequestParam(value = "fullName", required = false) String fullName,
-            @RequestParam(value = "email", required = false) String email,
+            @ParameterObject UserSearchRequest request,
             @ParameterObject Pageable pageable
     ) {
-        if (pageable.getSort().isSorted()) {
-            Sort.Order order = pageable.getSort().iterator().next();
-            String sortField = order.getProperty();
-            Sort.Direction sortDirection = order.getDirection();
-            String actualSortField = "fullName".equalsIgnoreCase(sortField) ? "lastName" : sortField;
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(sortDirection, actualSortField));
-        }
         return ApiResponse.<Page<UserResponse>>builder()
-                .result(parentService.getAllParents(fullName,email,pageable))
+                .result(parentService.getAllParents(request, pageable))
                 .message("Fetched all parents")
                 .build();
     }
 
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Suggest parents by name prefix, accent-insensitive")
+    public ApiResponse<List<UserResponse>> autocomplete(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        return ApiResponse.<List<UserResponse>>builder()
+                .result(parentService.autocompleteParents(prefix, limit))
+                .message("Fetched parent suggestions")
+                .build();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get parent by ID")
     public ApiResponse<UserResponse> getParentById(@PathVariable String id) {
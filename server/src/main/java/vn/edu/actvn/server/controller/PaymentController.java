@@ -6,11 +6,15 @@ import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.payment.PaymentSearchRequest;
 import vn.edu.actvn.server.dto.request.payment.CreatePaymentRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
 import vn.edu.actvn.server.dto.response.payment.PaymentResponse;
 import vn.edu.actvn.server.service.PaymentService;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
 
 @RestController
 @RequestMapping("/payments")
@@ -33,12 +37,25 @@ public class PaymentController {
     @GetMapping
     @Operation(summary = "Get all payments")
     public ApiResponse<Page<PaymentResponse>> getAllPayments(
-            @RequestParam (required = false) String studentId,
-            @RequestParam (required = false) String classId,
+            @ParameterObject PaymentSearchRequest request,
             @ParameterObject Pageable pageable
     ) {
         return ApiResponse.<Page<PaymentResponse>>builder()
-                .result(paymentService.getAllPayments(studentId, classId, pageable))
+                .result(paymentService.getAllPayments(request, pageable))
+                .message("List of payments")
+                .build();
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll payments with a continuation cursor",
+            description = "Keyset pagination without total count: pass nextCursor of the previous page as cursor")
+    public ApiResponse<CursorPage<PaymentResponse>> scrollPayments(
+            @ParameterObject PaymentSearchRequest request,
+            @ParameterObject CursorRequest cursor,
+            @ParameterObject Sort sort
+    ) {
+        return ApiResponse.<CursorPage<PaymentResponse>>builder()
+                .result(paymentService.scrollPayments(request, cursor, sort))
                 .message("List of payments")
                 .build();
     }
@@ -0,0 +1,38 @@
+package vn.edu.actvn.server.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import vn.edu.actvn.server.dto.response.ApiResponse;
+import vn.edu.actvn.server.dto.response.search.SuggestionResponse;
+import vn.edu.actvn.server.service.SuggestionService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+@Tag(name = "Search", description = "Type-ahead suggestions for people and classes")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SearchController {
+    SuggestionService suggestionService;
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest students, teachers, parents and classes by name or username prefix")
+    public ApiResponse<List<SuggestionResponse>> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "types", required = false) List<SuggestionResponse.Type> types
+    ) {
+        return ApiResponse.<List<SuggestionResponse>>builder()
+                .result(suggestionService.suggest(query, limit, types))
+                .message("Fetched suggestions")
+                .build();
+    }
+}
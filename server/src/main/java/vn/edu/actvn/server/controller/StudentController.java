@@ -6,16 +6,18 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.request.ListStringIdRequest;
 import vn.edu.actvn.server.dto.request.user.CreateStudentRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateStudentRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.service.StudentService;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -31,23 +33,41 @@ public class StudentController {
     @GetMapping
     @Operation(summary = "Get all students")
     public ApiResponse<Page<UserResponse>> getAllStudents(
-            @RequestParam(value = "fullName", required = false) String fullName,
-            @RequestParam(value = "email", required = false) String email,
+            @ParameterObject UserSearchRequest request,
             @ParameterObject Pageable pageable
     ) {
-        if (pageable.getSort().isSorted()) {
-            Sort.Order order = pageable.getSort().iterator().next();
-            String sortField = order.getProperty();
-            Sort.Direction sortDirection = order.getDirection();
-            String actualSortField = "fullName".equalsIgnoreCase(sortField) ? "lastName" : sortField;
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(sortDirection, actualSortField));
-        }
         return ApiResponse.<Page<UserResponse>>builder()
-                .result(studentService.getAllStudents(fullName, email,pageable))
+                .result(studentService.getAllStudents(request, pageable))
                 .message("Fetched all students")
                 .build();
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll students with a continuation cursor",
+            description = "Keyset pagination without total count: pass nextCursor of the previous page as cursor")
+    public ApiResponse<CursorPage<UserResponse>> scrollStudents(
+            @ParameterObject UserSearchRequest request,
+            @ParameterObject CursorRequest cursor,
+            @ParameterObject Sort sort
+    ) {
+        return ApiResponse.<CursorPage<UserResponse>>builder()
+                .result(studentService.scrollStudents(request, cursor, sort))
+                .message("Fetched students")
+                .build();
+    }
+
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Suggest students by name prefix, accent-insensitive")
+    public ApiResponse<List<UserResponse>> autocomplete(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        return ApiResponse.<List<UserResponse>>builder()
+                .result(studentService.autocompleteStudents(prefix, limit))
+                .message("Fetched student suggestions")
+                .build();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get student by ID")
     public ApiResponse<UserResponse> getStudentById(@PathVariable String id) {
@@ -7,16 +7,17 @@ import lombok.RequiredArgsConstructor;
 
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.request.user.CreateTeacherRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateTeacherRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.service.TeacherService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/teachers")
 @RequiredArgsConstructor
@@ -27,23 +28,27 @@ public class TeacherController {
     @GetMapping
     @Operation(summary = "Get all teachers")
     public ApiResponse<Page<UserResponse>> getAllTeachers(
-            @RequestParam(value = "fullName", required = false) String fullName,
-            @RequestParam(value = "email", required = false) String email,
+            @ParameterObject UserSearchRequest request,
             @ParameterObject Pageable pageable
     ) {
-        if (pageable.getSort().isSorted()) {
-            Sort.Order order = pageable.getSort().iterator().next();
-            String sortField = order.getProperty();
-            Sort.Direction sortDirection = order.getDirection();
-            String actualSortField = "fullName".equalsIgnoreCase(sortField) ? "lastName" : sortField;
-            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(sortDirection, actualSortField));
-        }
         return ApiResponse.<Page<UserResponse>>builder()
-                .result(teacherService.getAllTeachers(fullName,email,pageable))
+                .result(teacherService.getAllTeachers(request, pageable))
                 .message("Fetched all teachers")
                 .build();
     }
 
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Suggest teachers by name prefix, accent-insensitive")
+    public ApiResponse<List<UserResponse>> autocomplete(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        return ApiResponse.<List<UserResponse>>builder()
+                .result(teacherService.autocompleteTeachers(prefix, limit))
+                .message("Fetched teacher suggestions")
+                .build();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get teacher by ID")
     public ApiResponse<UserResponse> getTeacherById(@PathVariable String id) {
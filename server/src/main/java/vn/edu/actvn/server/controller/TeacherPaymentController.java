@@ -7,6 +7,7 @@ import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.teacherpayment.TeacherPaymentSearchRequest;
 import vn.edu.actvn.server.dto.request.teacherpayment.CreateTeacherPaymentRequest;
 import vn.edu.actvn.server.dto.request.teacherpayment.UpdateTeacherPaymentRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
@@ -23,12 +24,10 @@ public class TeacherPaymentController {
     @GetMapping
     @Operation(summary = "Get all teacher payments")
     public ApiResponse<Page<TeacherPaymentResponse>> getAll(
-            @RequestParam(required = false) String teacherId,
-            @RequestParam(required = false) Integer month,
-            @RequestParam(required = false) Integer year,
+            @ParameterObject TeacherPaymentSearchRequest request,
             @ParameterObject Pageable pageable) {
         return ApiResponse.<Page<TeacherPaymentResponse>>builder()
-                .result(paymentService.getAll(teacherId, month, year, pageable))
+                .result(paymentService.getAll(request, pageable))
                 .message("Fetched all teacher payments")
                 .build();
     }
@@ -10,14 +10,16 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
+import vn.edu.actvn.server.dto.request.tuitionfee.TuitionFeeSearchRequest;
 import vn.edu.actvn.server.dto.request.tuitionfee.CreateTuitionFeeRequest;
 import vn.edu.actvn.server.dto.request.tuitionfee.UpdateTuitionFeeRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
 import vn.edu.actvn.server.dto.response.tuitionfee.TuitionFeeResponse;
 import vn.edu.actvn.server.service.TuitionFeeService;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
 
 import java.time.LocalDate;
-import java.time.YearMonth;
 import java.util.List;
 
 @RestController
@@ -40,20 +42,32 @@ public class TuitionFeeController {
     @GetMapping
     @Operation(summary = "Get all tuition fees", description = "Return paginated tuition fee list")
     public ApiResponse<Page<TuitionFeeResponse>>  getAll(
-            @RequestParam (required = false) String studentId,
-            @RequestParam (required = false) String classId,
-            @RequestParam (required = false) YearMonth yearMonth,
+            @ParameterObject TuitionFeeSearchRequest request,
             @ParameterObject @PageableDefault(
                     sort = "yearMonth",
                     direction = Sort.Direction.DESC
             ) Pageable pageable
     ) {
         return ApiResponse.<Page<TuitionFeeResponse>>builder()
-                .result(tuitionFeeService.getAllTuitionFees(studentId,classId, yearMonth, pageable))
+                .result(tuitionFeeService.getAllTuitionFees(request, pageable))
                 .message("Fetched all tuition fees")
                 .build();
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll tuition fees with a continuation cursor",
+            description = "Keyset pagination without total count: pass nextCursor of the previous page as cursor")
+    public ApiResponse<CursorPage<TuitionFeeResponse>> scrollTuitionFees(
+            @ParameterObject TuitionFeeSearchRequest request,
+            @ParameterObject CursorRequest cursor,
+            @ParameterObject Sort sort
+    ) {
+        return ApiResponse.<CursorPage<TuitionFeeResponse>>builder()
+                .result(tuitionFeeService.scrollTuitionFees(request, cursor, sort))
+                .message("Fetched tuition fees")
+                .build();
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get tuition fee by ID", description = "Return tuition fee by ID")
     public ApiResponse<TuitionFeeResponse> getById(@PathVariable String id) {
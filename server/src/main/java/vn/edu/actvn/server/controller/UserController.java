@@ -5,6 +5,7 @@ import jakarta.validation.Valid;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,10 +18,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.multipart.MultipartFile;
+import vn.edu.actvn.server.dto.request.CursorRequest;
 import vn.edu.actvn.server.dto.request.email.SendToParentRequest;
 import vn.edu.actvn.server.dto.request.user.CreateAdminRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateAdminRequest;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.response.ApiResponse;
+import vn.edu.actvn.server.dto.response.CursorPage;
 import vn.edu.actvn.server.dto.response.notification.NotificationResponse;
 import vn.edu.actvn.server.dto.response.upload.UploadResponse;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
@@ -78,6 +82,19 @@ public class UserController {
                                 .build();
         }
 
+        @GetMapping("/scroll")
+        @Operation(summary = "Scroll users with a continuation cursor",
+                        description = "Keyset pagination without total count: pass nextCursor of the previous page as cursor")
+        public ApiResponse<CursorPage<UserResponse>> scrollUsers(
+                        @ParameterObject UserSearchRequest request,
+                        @ParameterObject CursorRequest cursor,
+                        @ParameterObject Sort sort) {
+                return ApiResponse.<CursorPage<UserResponse>>builder()
+                                .result(userService.scrollUsers(request, cursor, sort))
+                                .message("Fetched users")
+                                .build();
+        }
+
         @GetMapping("/role/{roleName}")
         @Operation(summary = "Get all users by role name")
         public ApiResponse<Page<UserResponse>> getUsersByRoleName(
@@ -0,0 +1,22 @@
+package vn.edu.actvn.server.dto.request;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CursorRequest {
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 500;
+
+    // nextCursor của trang trước; bỏ trống để lấy trang đầu
+    String cursor;
+    Integer size;
+
+    public int limit() {
+        return size == null ? DEFAULT_SIZE : Math.clamp(size, 1, MAX_SIZE);
+    }
+}
@@ -0,0 +1,18 @@
+package vn.edu.actvn.server.dto.request.attendance;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+// Bộ lọc danh sách điểm danh; trường null/rỗng được bỏ qua
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AttendanceSearchRequest {
+    String studentId;
+    String classId;
+    LocalDate date;
+}
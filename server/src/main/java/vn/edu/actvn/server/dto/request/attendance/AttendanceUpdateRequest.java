@@ -2,7 +2,6 @@ package vn.edu.actvn.server.dto.request.attendance;
 
 import lombok.*;
 import lombok.experimental.FieldDefaults;
-import vn.edu.actvn.server.entity.StudentAttendance;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -15,5 +14,5 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class AttendanceUpdateRequest {
     LocalDate date;
-    List<StudentAttendance> studentAttendances;
+    List<StudentAttendanceRequest> studentAttendances;
 }
@@ -0,0 +1,17 @@
+package vn.edu.actvn.server.dto.request.attendance;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import vn.edu.actvn.server.entity.Attendance;
+
+// Một dòng điểm danh trong request; khi PATCH từng học sinh, status/note null nghĩa là giữ nguyên
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StudentAttendanceRequest {
+    String studentId;
+    Attendance.Status status;
+    String note;
+}
@@ -0,0 +1,19 @@
+package vn.edu.actvn.server.dto.request.entityclass;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import vn.edu.actvn.server.entity.EntityClass;
+
+// Bộ lọc danh sách lớp; trường null/rỗng được bỏ qua thay vì sinh điều kiện LIKE '%%'
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ClassSearchRequest {
+    String studentId;
+    String teacherId;
+    String className;
+    Integer grade;
+    EntityClass.Status status;
+}
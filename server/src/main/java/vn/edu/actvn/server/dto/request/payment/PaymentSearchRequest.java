@@ -0,0 +1,15 @@
+package vn.edu.actvn.server.dto.request.payment;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+// Bộ lọc danh sách thanh toán; ID so sánh bằng
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaymentSearchRequest {
+    String studentId;
+    String classId;
+}
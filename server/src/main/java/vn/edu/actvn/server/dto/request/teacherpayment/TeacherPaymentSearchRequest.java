@@ -0,0 +1,16 @@
+package vn.edu.actvn.server.dto.request.teacherpayment;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+// Bộ lọc lương giáo viên; month/year = 0 hoặc null nghĩa là không lọc
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TeacherPaymentSearchRequest {
+    String teacherId;
+    Integer month;
+    Integer year;
+}
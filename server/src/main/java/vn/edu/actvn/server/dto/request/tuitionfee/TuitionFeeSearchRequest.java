@@ -0,0 +1,18 @@
+package vn.edu.actvn.server.dto.request.tuitionfee;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.YearMonth;
+
+// Bộ lọc danh sách học phí; trường null/rỗng được bỏ qua
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TuitionFeeSearchRequest {
+    String studentId;
+    String classId;
+    YearMonth yearMonth;
+}
@@ -0,0 +1,15 @@
+package vn.edu.actvn.server.dto.request.user;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+// Bộ lọc danh sách học sinh/giáo viên/phụ huynh; họ tên và email khớp một phần, không phân biệt dấu
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserSearchRequest {
+    String fullName;
+    String email;
+}
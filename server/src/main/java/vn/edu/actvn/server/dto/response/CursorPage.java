@@ -0,0 +1,19 @@
+package vn.edu.actvn.server.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+// Một trang theo cursor: không có tổng số bản ghi, dùng nextCursor để lấy trang tiếp theo
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CursorPage<T> {
+    List<T> content;
+    int size;
+    boolean hasNext;
+    String nextCursor;
+}
@@ -0,0 +1,18 @@
+package vn.edu.actvn.server.dto.response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Một phần tử của collection kèm id chủ sở hữu, dùng để nạp collection cho cả trang bằng một truy vấn IN (...)
+public record KeyedValue<V>(String key, V value) {
+
+    public static <V> Map<String, List<V>> group(List<KeyedValue<V>> rows) {
+        Map<String, List<V>> grouped = new HashMap<>();
+        for (KeyedValue<V> row : rows) {
+            grouped.computeIfAbsent(row.key(), key -> new ArrayList<>()).add(row.value());
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,6 @@
+package vn.edu.actvn.server.dto.response.dashboard;
+
+public interface GradeCount {
+    Integer getGrade();
+    Long getCount();
+}
@@ -0,0 +1,6 @@
+package vn.edu.actvn.server.dto.response.dashboard;
+
+public interface MonthlyCount {
+    Integer getMonthOfYear();
+    Long getCount();
+}
@@ -0,0 +1,23 @@
+package vn.edu.actvn.server.dto.response.entityclass;
+
+import vn.edu.actvn.server.entity.EntityClass;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Các cột của ClassResponse đọc thẳng từ bảng classes; studentIds/daysOfWeek nạp riêng cho cả trang
+public record ClassListItem(
+        String classId,
+        String className,
+        Integer year,
+        Integer grade,
+        String roomName,
+        EntityClass.Status status,
+        String teacherId,
+        BigDecimal unitPrice,
+        LocalDate startDate,
+        LocalDate endDate,
+        LocalTime startTime,
+        LocalTime endTime
+) {}
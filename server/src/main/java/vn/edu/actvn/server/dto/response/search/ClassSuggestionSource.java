@@ -0,0 +1,7 @@
+package vn.edu.actvn.server.dto.response.search;
+
+public record ClassSuggestionSource(
+        String id,
+        String label
+) {
+}
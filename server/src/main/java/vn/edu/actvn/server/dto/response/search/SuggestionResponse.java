@@ -0,0 +1,20 @@
+package vn.edu.actvn.server.dto.response.search;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SuggestionResponse {
+    Type type;
+    String id;
+    String label; // họ tên hoặc tên lớp
+    String username;
+
+    public enum Type {
+        STUDENT, TEACHER, PARENT, CLASS
+    }
+}
@@ -0,0 +1,10 @@
+package vn.edu.actvn.server.dto.response.search;
+
+// Dữ liệu tối thiểu để đưa một người dùng vào index gợi ý; role quyết định loại (STUDENT/TEACHER/PARENT)
+public record UserSuggestionSource(
+        String id,
+        String label,
+        String username,
+        String role
+) {
+}
@@ -0,0 +1,15 @@
+package vn.edu.actvn.server.dto.response.tuitionfee;
+
+import java.math.BigDecimal;
+
+// Dòng trả về của TuitionFeeRepository.upsert/upsertAll; previous* là null khi khoản học phí vừa được tạo
+public interface TuitionFeeUpsertResult {
+    String getTuitionFeeId();
+    String getStudentId();
+    BigDecimal getAmount();
+    BigDecimal getPaidAmount();
+    BigDecimal getRemainingAmount();
+    BigDecimal getPreviousAmount();
+    BigDecimal getPreviousPaidAmount();
+    BigDecimal getPreviousRemainingAmount();
+}
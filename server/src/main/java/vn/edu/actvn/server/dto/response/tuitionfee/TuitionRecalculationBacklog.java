@@ -0,0 +1,12 @@
+package vn.edu.actvn.server.dto.response.tuitionfee;
+
+// Tình trạng hàng đợi tính lại học phí (mọi node); các giá trị thời gian tính bằng giây theo đồng hồ của DB
+public interface TuitionRecalculationBacklog {
+    long getPending();
+
+    // null khi hàng đợi rỗng
+    Double getLagSeconds();
+
+    // null khi hàng đợi rỗng; âm khi đã có job đến hạn
+    Double getNextDueSeconds();
+}
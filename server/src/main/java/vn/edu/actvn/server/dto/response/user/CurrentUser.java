@@ -0,0 +1,18 @@
+package vn.edu.actvn.server.dto.response.user;
+
+import vn.edu.actvn.server.constant.PredefinedRole;
+
+// Thông tin tối thiểu của người dùng đang đăng nhập; role cũng chính là loại user (STUDENT/TEACHER/PARENT/ADMIN)
+public record CurrentUser(
+        String userId,
+        String username,
+        String role
+) {
+    public boolean isAdmin() {
+        return PredefinedRole.ADMIN_ROLE.equals(role);
+    }
+
+    public boolean isTeacher() {
+        return PredefinedRole.TEACHER_ROLE.equals(role);
+    }
+}
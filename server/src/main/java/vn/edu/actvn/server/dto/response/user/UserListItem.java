@@ -0,0 +1,20 @@
+package vn.edu.actvn.server.dto.response.user;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Các cột của UserResponse đọc thẳng từ users (+ bảng con) cho danh sách; parentId/salary null với loại user không có
+public record UserListItem(
+        String userId,
+        String username,
+        String fullName,
+        String email,
+        String gender,
+        String address,
+        String phoneNumber,
+        String avatarUrl,
+        LocalDate dob,
+        String role,
+        String parentId,
+        BigDecimal salary
+) {}
@@ -0,0 +1,29 @@
+package vn.edu.actvn.server.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+// Kết quả thống kê của một năm đã kết thúc, lưu dạng JSON để dùng lại sau khi khởi động lại
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "analytics_snapshot")
+public class AnalyticsSnapshot {
+
+    @Id
+    @Column(name = "snapshot_year")
+    Integer year;
+
+    @Column(nullable = false, columnDefinition = "text")
+    String payload;
+
+    @Column(nullable = false)
+    LocalDateTime computedAt;
+}
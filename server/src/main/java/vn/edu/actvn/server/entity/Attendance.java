@@ -1,6 +1,5 @@
 package vn.edu.actvn.server.entity;
 
-import com.fasterxml.jackson.annotation.JsonCreator;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -15,7 +14,7 @@ import java.util.List;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-@Table(name = "attendance")
+@Table(name = "attendance", indexes = @Index(name = "idx_attendance_class_date", columnList = "class_id, date"))
 public class Attendance {
 
     @Id
@@ -29,8 +28,8 @@ public class Attendance {
     @Column(nullable = false)
     LocalDate date;
 
-    @ElementCollection
-    @CollectionTable(name = "attendance_student", joinColumns = @JoinColumn(name = "attendance_id"))
+    // Dòng không đổi thì không sinh câu lệnh; thêm/sửa/bỏ một học sinh chỉ ghi đúng dòng đó
+    @OneToMany(mappedBy = "attendance", cascade = CascadeType.ALL, orphanRemoval = true)
     List<StudentAttendance> studentAttendances;
 
     public enum Status {
@@ -3,9 +3,13 @@ package vn.edu.actvn.server.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import vn.edu.actvn.server.configuration.SecondLevelCacheConfig;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -23,8 +27,14 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "classes")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CLASS)
+@Table(name = "classes", indexes = {
+        @Index(name = "idx_classes_teacher_id", columnList = "teacher_id"),
+        @Index(name = "idx_classes_status", columnList = "status"),
+        @Index(name = "idx_classes_grade", columnList = "grade")
+})
 public class EntityClass {
+    public static final int FETCH_BATCH_SIZE = 100;
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -50,8 +60,11 @@ public class EntityClass {
     @JoinColumn(name = "teacher_id")
     Teacher teacher;
 
+    // Danh sách lớp đọc students/daysOfWeek cho cả trang: nạp theo lô (class_id = any(?)) thay vì mỗi lớp một truy vấn
     @ManyToMany
-    @JoinTable(name = "class_students", joinColumns = @JoinColumn(name = "class_id"), inverseJoinColumns = @JoinColumn(name = "student_id"))
+    @BatchSize(size = EntityClass.FETCH_BATCH_SIZE)
+    @JoinTable(name = "class_students", joinColumns = @JoinColumn(name = "class_id"), inverseJoinColumns = @JoinColumn(name = "student_id"),
+            indexes = @Index(name = "idx_class_students_student_id", columnList = "student_id"))
     List<Student> students;
 
     @Column(nullable = false, precision = 10, scale = 2)
@@ -64,6 +77,8 @@ public class EntityClass {
     LocalTime endTime;
 
     @ElementCollection
+    @BatchSize(size = EntityClass.FETCH_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CLASS_DAYS_OF_WEEK)
     @Enumerated(EnumType.STRING)
     List<DayOfWeek> daysOfWeek;
 
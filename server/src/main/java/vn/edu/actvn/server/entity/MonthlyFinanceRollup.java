@@ -0,0 +1,36 @@
+package vn.edu.actvn.server.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Tổng tài chính theo tháng, được cập nhật cùng transaction với học phí / thanh toán / lương giáo viên
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(name = "monthly_finance_rollup")
+public class MonthlyFinanceRollup {
+
+    @Id
+    @Column(name = "period_month")
+    LocalDate periodMonth; // ngày đầu tháng, 2025-06-01
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    BigDecimal tuitionAmount; // tổng học phí phải thu
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    BigDecimal tuitionPaid; // doanh thu
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    BigDecimal tuitionRemaining; // học phí chưa thu
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    BigDecimal teacherPaid; // lương giáo viên đã trả
+}
@@ -1,5 +1,6 @@
 package vn.edu.actvn.server.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.ElementCollection;
@@ -10,6 +11,7 @@ import lombok.experimental.SuperBuilder;
 import java.util.List;
 
 @Entity
+@Cacheable(false)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,7 +20,10 @@ import java.time.YearMonth;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_tuition_fee_id", columnList = "tuition_fee_id"),
+        @Index(name = "idx_payments_created_at", columnList = "created_at")
+})
 @ToString
 public class Payment {
     @Id
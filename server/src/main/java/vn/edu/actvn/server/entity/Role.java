@@ -3,6 +3,9 @@ package vn.edu.actvn.server.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import vn.edu.actvn.server.configuration.SecondLevelCacheConfig;
 import vn.edu.actvn.server.constant.Permission;
 
 import java.util.Set;
@@ -14,12 +17,14 @@ import java.util.Set;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ROLE)
 public class Role {
     @Id
     String name;
 
     String description;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ROLE_PERMISSIONS)
     @ElementCollection(targetClass = Permission.class, fetch = FetchType.EAGER)
     @CollectionTable(name = "role_permissions", joinColumns = @JoinColumn(name = "role_name"))
     @Enumerated(EnumType.STRING)
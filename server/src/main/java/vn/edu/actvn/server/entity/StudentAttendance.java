@@ -1,13 +1,32 @@
 package vn.edu.actvn.server.entity;
 
 import jakarta.persistence.*;
-import lombok.Getter;
-import lombok.Setter;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
 
+import java.io.Serializable;
+
+// Mỗi học sinh trong một buổi điểm danh là một dòng có khoá (attendance_id, student_id) nên sửa được riêng từng dòng
 @Getter
 @Setter
-@Embeddable
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@IdClass(StudentAttendance.Key.class)
+// student_id đứng đầu nên index vẫn phục vụ mọi truy vấn theo học sinh; status và attendance_id giúp đếm buổi có mặt
+// bằng index-only scan
+@Table(name = "attendance_student",
+        indexes = @Index(name = "idx_attendance_student_student_status", columnList = "student_id, status, attendance_id"))
 public class StudentAttendance {
+  @Id
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
+  @JoinColumn(name = "attendance_id")
+  Attendance attendance;
+
+  @Id
+  @Column(name = "student_id")
   String studentId;
 
   @Enumerated(EnumType.STRING)
@@ -16,4 +35,16 @@ public class StudentAttendance {
 
   @Column(columnDefinition = "TEXT")
   String note;
-}
\ No newline at end of file
+
+  // Tên trường trùng với các thuộc tính @Id ở trên; attendance là id của Attendance
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  @FieldDefaults(level = AccessLevel.PRIVATE)
+  public static class Key implements Serializable {
+    String attendance;
+    String studentId;
+  }
+}
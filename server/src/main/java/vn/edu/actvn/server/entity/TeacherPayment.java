@@ -17,6 +17,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @SuperBuilder
 @EntityListeners(AuditingEntityListener.class)
+@Table(indexes = @Index(name = "idx_teacher_payment_teacher_period", columnList = "teacher_id, year, month"))
 public class TeacherPayment {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
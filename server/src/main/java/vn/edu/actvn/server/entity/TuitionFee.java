@@ -19,7 +19,14 @@ import java.time.YearMonth;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "tuition_fees")
+@Table(name = "tuition_fees", indexes = {
+        @Index(name = "idx_tuition_fees_student_id", columnList = "student_id"),
+        @Index(name = "idx_tuition_fees_class_id", columnList = "class_id"),
+        @Index(name = "idx_tuition_fees_year_month", columnList = "fee_year_month")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_tuition_fees_student_class_month",
+        columnNames = {"student_id", "class_id", "fee_year_month"}))
+// TuitionFeeRepository.upsert/upsertAll dựa vào khoá duy nhất này. Bảng có sẵn khoản trùng thì ddl-auto không thêm được
+// khoá: migration V3 gộp các khoản trùng rồi thêm
 public class TuitionFee {
 
     @Id
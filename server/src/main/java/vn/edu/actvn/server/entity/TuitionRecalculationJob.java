@@ -0,0 +1,56 @@
+package vn.edu.actvn.server.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Hàng đợi tính lại học phí lưu trong DB: mỗi (lớp, tháng) chờ tính lại là một dòng, còn nguyên sau khi khởi động lại
+// và mọi node đều thấy. Dòng chỉ bị xoá trong cùng transaction đã tính lại xong
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@IdClass(TuitionRecalculationJob.Key.class)
+@Table(name = "tuition_recalculation_jobs",
+        indexes = @Index(name = "idx_tuition_recalculation_jobs_due_at", columnList = "due_at"))
+public class TuitionRecalculationJob {
+    @Id
+    @Column(name = "class_id")
+    String classId;
+
+    @Id
+    @Column(name = "fee_month")
+    LocalDate month;
+
+    // Lần xếp hàng đầu tiên chưa được xử lý, dùng cho độ trễ
+    @Column(name = "queued_at", nullable = false)
+    LocalDateTime queuedAt;
+
+    // Thời điểm sớm nhất được chạy: hết delay gom sửa đổi, hoặc hết thời gian chờ sau lần lỗi trước
+    @Column(name = "due_at", nullable = false)
+    LocalDateTime dueAt;
+
+    @Column(nullable = false)
+    int attempts;
+
+    @Column(columnDefinition = "TEXT")
+    String lastError;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Key implements Serializable {
+        String classId;
+        LocalDate month;
+    }
+}
@@ -11,10 +11,12 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 import lombok.experimental.SuperBuilder;
-import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import vn.edu.actvn.server.configuration.SecondLevelCacheConfig;
 
 @Getter
 @Setter
@@ -25,7 +27,12 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @Entity
 @EntityListeners(AuditingEntityListener.class)
 @Inheritance(strategy = InheritanceType.JOINED)
-@Table(name = "users")
+// Chỉ Teacher được cache (dữ liệu tham chiếu, ít); Student/Parent nhiều và đọc qua projection nên tắt ở lớp con
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.USER)
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_username", columnList = "username"),
+        @Index(name = "idx_users_last_name", columnList = "last_name, user_id")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -35,9 +42,11 @@ public class User {
     String password;
     String fullName;
 
-//    @Formula("SUBSTRING_INDEX(full_name, ' ', -1)") // This is MySQL syntax, not supported by JPA/Hibernate
+    // Tên (từ cuối của họ tên) lưu thành cột để sắp xếp theo index, luôn tính lại từ fullName.
+    // Không null (chưa có họ tên thì là ""): dùng làm khoá keyset, so sánh với null sẽ làm dừng việc cuộn trang.
+    // NOT NULL do migration V1 đặt sau khi điền dữ liệu cũ, không khai báo ở đây để ddl-auto thêm được cột
     @Setter(AccessLevel.NONE)
-    @Formula("reverse(split_part(reverse(full_name), ' ', 1))") // PostgreSQL syntax for last name extraction
+    @Column(name = "last_name")
     String lastName;
 
     LocalDate dob;
@@ -57,4 +66,22 @@ public class User {
 
     @LastModifiedDate
     LocalDateTime updatedAt;
+
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+        this.lastName = lastNameOf(fullName);
+    }
+
+    // Entity tạo qua builder không đi qua setter
+    @PrePersist
+    @PreUpdate
+    void syncLastName() {
+        lastName = lastNameOf(fullName);
+    }
+
+    public static String lastNameOf(String fullName) {
+        if (fullName == null) return "";
+        String trimmed = fullName.strip();
+        return trimmed.substring(trimmed.lastIndexOf(' ') + 1);
+    }
 }
@@ -0,0 +1,5 @@
+package vn.edu.actvn.server.event;
+
+// Phát ra khi dữ liệu ảnh hưởng tới dashboard thống kê của một năm thay đổi (thanh toán, ghi danh...)
+public record AnalyticsChangedEvent(int year) {
+}
@@ -0,0 +1,17 @@
+package vn.edu.actvn.server.event;
+
+// Phát ra khi tên/username của người dùng hoặc tên lớp có thể đã đổi (tạo, sửa, xoá) để cập nhật index gợi ý
+public record SearchIndexChangedEvent(Target target, String id) {
+
+    public enum Target {
+        USER, CLASS
+    }
+
+    public static SearchIndexChangedEvent user(String userId) {
+        return new SearchIndexChangedEvent(Target.USER, userId);
+    }
+
+    public static SearchIndexChangedEvent entityClass(String classId) {
+        return new SearchIndexChangedEvent(Target.CLASS, classId);
+    }
+}
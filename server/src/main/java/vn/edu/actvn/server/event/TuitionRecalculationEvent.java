@@ -0,0 +1,11 @@
+package vn.edu.actvn.server.event;
+
+import java.time.LocalDate;
+
+// Phát ra khi điểm danh của một lớp trong một tháng thay đổi; học phí cả lớp tháng đó được tính lại sau khi commit
+public record TuitionRecalculationEvent(String classId, LocalDate month) {
+
+    public TuitionRecalculationEvent {
+        month = month.withDayOfMonth(1);
+    }
+}
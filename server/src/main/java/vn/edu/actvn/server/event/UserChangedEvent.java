@@ -0,0 +1,5 @@
+package vn.edu.actvn.server.event;
+
+// Phát ra khi người dùng bị sửa hoặc xoá (username/role có thể đã đổi) để bỏ user hiện tại đã cache trên mọi node
+public record UserChangedEvent(String userId) {
+}
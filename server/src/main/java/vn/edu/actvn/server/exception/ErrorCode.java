@@ -31,6 +31,7 @@ public enum ErrorCode {
 
     ATTENDANCE_NOT_FOUND(404,"Attendance not found" ,HttpStatus.NOT_FOUND ),
     TODAY_NOT_VALID_FOR_ATTENDANCE(400,"Today not valid for attendance" ,HttpStatus.BAD_REQUEST ),
+    STUDENT_NOT_IN_ATTENDANCE(404, "Student not found in this attendance", HttpStatus.NOT_FOUND),
     FAILED_TO_UPLOAD_IMAGE(400,"Failded to upload image" ,HttpStatus.BAD_REQUEST ),
     PAYMENT_NOT_EXISTED(404,"Payment not existed" ,HttpStatus.NOT_FOUND ),
     PAYMENT_AMOUNT_INVALID(400, "Payment amount invalid",HttpStatus.BAD_REQUEST ),
@@ -39,11 +40,15 @@ public enum ErrorCode {
     INVALID_OTP(400,"Invalid otp" ,HttpStatus.BAD_REQUEST ),
 
     INVALID_KEY(400, "Invalid key", HttpStatus.BAD_REQUEST),
+    INVALID_CURSOR(400, "Invalid cursor", HttpStatus.BAD_REQUEST),
     USERNAME_INVALID(400, "Username must be at least {min} characters", HttpStatus.BAD_REQUEST),
     INVALID_PASSWORD(400, "Password must be at least {min} characters", HttpStatus.BAD_REQUEST),
     INVALID_DOB(400, "Your age must be at least {min}", HttpStatus.BAD_REQUEST),
     GENDER_INVALID(400,"Gender must be one of {'MALE','FEMALE'}" , HttpStatus.BAD_REQUEST),
 
+    TOO_MANY_REQUESTS(429, "Too many requests, please retry later", HttpStatus.TOO_MANY_REQUESTS),
+    TUITION_FEE_RECALCULATING(503, "Tuition fee is being recalculated, please retry later", HttpStatus.SERVICE_UNAVAILABLE),
+
     ALREADY_PAID(400,"Already paid" , HttpStatus.BAD_REQUEST),
     INVALID_AMOUNT(400,"Invalid amount" , HttpStatus.BAD_REQUEST);
 
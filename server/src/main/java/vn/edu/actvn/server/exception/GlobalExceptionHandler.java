@@ -5,6 +5,8 @@ import java.util.Objects;
 
 import jakarta.validation.ConstraintViolation;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationServiceException;
@@ -25,6 +27,13 @@ public class GlobalExceptionHandler {
 
     private static final String MIN_ATTRIBUTE = "min";
 
+    @Value("${security.password-hashing.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    // Đủ để job tính lại học phí hết delay gom sửa đổi và được worker lấy ở lần hỏi kế tiếp
+    @Value("${tuition.recalculation.retry-after-seconds:2}")
+    private long recalculationRetryAfterSeconds;
+
     @ExceptionHandler(value = Exception.class)
     ResponseEntity<ApiResponse> handlingRuntimeException(Exception exception) {
         log.error("Exception: ", exception);
@@ -73,6 +82,17 @@ public class GlobalExceptionHandler {
         apiResponse.setCode(errorCode.getCode());
         apiResponse.setMessage(errorCode.getMessage());
 
+        Long retryAfter = switch (errorCode) {
+            case TOO_MANY_REQUESTS -> retryAfterSeconds;
+            case TUITION_FEE_RECALCULATING -> recalculationRetryAfterSeconds;
+            default -> null;
+        };
+        if (retryAfter != null) {
+            return ResponseEntity.status(errorCode.getStatusCode())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                    .body(apiResponse);
+        }
+
         return ResponseEntity.status(errorCode.getStatusCode()).body(apiResponse);
     }
 
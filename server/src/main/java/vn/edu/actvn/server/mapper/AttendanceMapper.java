@@ -4,6 +4,7 @@ import org.mapstruct.*;
 
 import vn.edu.actvn.server.dto.request.attendance.AttendanceUpdateRequest;
 import vn.edu.actvn.server.dto.request.attendance.CreateAttendanceRequest;
+import vn.edu.actvn.server.dto.request.attendance.StudentAttendanceRequest;
 import vn.edu.actvn.server.dto.request.attendance.StudentAttendanceResponse;
 import vn.edu.actvn.server.dto.response.attendance.AttendanceResponse;
 import vn.edu.actvn.server.entity.Attendance;
@@ -22,6 +23,13 @@ public interface AttendanceMapper {
 
     List<StudentAttendanceResponse> toDTOList(List<StudentAttendance> list);
 
+    // studentAttendances được ghép theo studentId trong AttendanceService, không thay cả danh sách
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "studentAttendances", ignore = true)
     void partiallyUpdateAttendance(@MappingTarget Attendance attendance, AttendanceUpdateRequest request);
+
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "attendance", ignore = true)
+    @Mapping(target = "studentId", ignore = true)
+    void patchStudentAttendance(@MappingTarget StudentAttendance studentAttendance, StudentAttendanceRequest request);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package vn.edu.actvn.server.mapper;
 import org.mapstruct.*;
 import vn.edu.actvn.server.dto.request.entityclass.ClassUpdateRequest;
 import vn.edu.actvn.server.dto.request.entityclass.CreateClassRequest;
+import vn.edu.actvn.server.dto.response.entityclass.ClassListItem;
 import vn.edu.actvn.server.dto.response.entityclass.ClassResponse;
 import vn.edu.actvn.server.entity.EntityClass;
 import vn.edu.actvn.server.entity.Student;
@@ -19,6 +20,11 @@ public interface ClassMapper {
     @Mapping(target = "studentIds", expression = "java(mapStudentIds(entityClass.getStudents()))")
     ClassResponse toClassResponse(EntityClass entityClass);
 
+    // studentIds/daysOfWeek được nạp riêng cho cả trang
+    @Mapping(target = "studentIds", ignore = true)
+    @Mapping(target = "daysOfWeek", ignore = true)
+    ClassResponse fromListItem(ClassListItem item);
+
     void updateEntityClass(ClassUpdateRequest request, @MappingTarget EntityClass entityClass);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
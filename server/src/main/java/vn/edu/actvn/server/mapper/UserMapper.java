@@ -3,6 +3,7 @@ package vn.edu.actvn.server.mapper;
 import org.mapstruct.*;
 
 import vn.edu.actvn.server.dto.request.user.*;
+import vn.edu.actvn.server.dto.response.user.UserListItem;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.entity.User;
 import vn.edu.actvn.server.entity.Parent;
@@ -57,6 +58,11 @@ public interface UserMapper {
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void patchAdmin(@MappingTarget User user, UpdateAdminRequest request);
 
+    // studentIds/classDiscounts được nạp riêng cho cả trang
+    @Mapping(target = "studentIds", ignore = true)
+    @Mapping(target = "classDiscounts", ignore = true)
+    UserResponse fromListItem(UserListItem item);
+
     @Mapping(target = "role", source = "role.name")
     UserResponse toAdminResponse(User admin);
 
@@ -0,0 +1,9 @@
+package vn.edu.actvn.server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.entity.AnalyticsSnapshot;
+
+@Repository
+public interface AnalyticsSnapshotRepository extends JpaRepository<AnalyticsSnapshot, Integer> {
+}
@@ -2,35 +2,31 @@ package vn.edu.actvn.server.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.request.attendance.AttendanceSearchRequest;
 import vn.edu.actvn.server.entity.Attendance;
+import vn.edu.actvn.server.repository.specification.AttendanceSpecification;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AttendanceRepository extends JpaRepository<Attendance, String> {
+public interface AttendanceRepository extends JpaRepository<Attendance, String>, JpaSpecificationExecutor<Attendance> {
 
-    Optional<Attendance> findByEntityClass_ClassIdAndDate(String classId, LocalDate date);
+    default Page<Attendance> search(AttendanceSearchRequest request, Pageable pageable) {
+        return findAll(AttendanceSpecification.matching(request), AttendanceSpecification.SORTABLE.apply(pageable));
+    }
 
-    @Query("""
-    SELECT DISTINCT a FROM Attendance a
-        LEFT JOIN a.studentAttendances sa
-    WHERE (:studentId IS NULL OR LOWER(sa.studentId) LIKE LOWER(CONCAT('%', CAST(:studentId AS string), '%')))
-      AND (:classId IS NULL OR LOWER(a.entityClass.classId) LIKE LOWER(CONCAT('%', CAST(:classId AS string), '%')))
-      AND (a.date = COALESCE(:date , a.date))
-""")
-    Page<Attendance> search(
-            @Param("studentId") String studentId,
-            @Param("classId") String classId,
-            @Param("date") LocalDate date,
-            Pageable pageable);
+    default Window<Attendance> scroll(AttendanceSearchRequest request, Sort sort, ScrollPosition position, int limit) {
+        return findBy(AttendanceSpecification.matching(request), query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
 
-    List<Attendance> findByEntityClass_ClassIdAndDateBetween(String classId, LocalDate start, LocalDate end);
+    Optional<Attendance> findByEntityClass_ClassIdAndDate(String classId, LocalDate date);
 
     long countByEntityClass_ClassIdAndStudentAttendances_StudentIdAndStudentAttendances_Status(String classId, String studentId, Attendance.Status status);
 }
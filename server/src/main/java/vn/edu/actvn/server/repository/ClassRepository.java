@@ -1,33 +1,102 @@
 package vn.edu.actvn.server.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.dto.response.dashboard.GradeCount;
+import vn.edu.actvn.server.dto.response.search.ClassSuggestionSource;
 import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.repository.specification.ClassSpecification;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ClassRepository extends JpaRepository<EntityClass, String> {
+public interface ClassRepository extends JpaRepository<EntityClass, String>, JpaSpecificationExecutor<EntityClass> {
+
+    default Page<EntityClass> search(ClassSearchRequest request, Pageable pageable) {
+        return findAll(ClassSpecification.matching(request), ClassSpecification.SORTABLE.apply(pageable));
+    }
+
+    // Giáo viên (EAGER) join luôn vào truy vấn danh sách thay vì mỗi giáo viên một SELECT; students/daysOfWeek nạp theo lô (@BatchSize)
+    @Override
+    @EntityGraph(attributePaths = "teacher")
+    Page<EntityClass> findAll(Specification<EntityClass> spec, Pageable pageable);
+
+    default Window<EntityClass> scroll(ClassSearchRequest request, Sort sort, ScrollPosition position, int limit) {
+        return findBy(ClassSpecification.matching(request).and(ClassSpecification.fetchTeacher()),
+                query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
+
+    // Job checkStatus: lấy id theo lô (lớp đã chuyển trạng thái thì không còn khớp nên lô sau luôn bắt đầu lại từ đầu)
+    @Query("""
+        SELECT c.classId FROM EntityClass c
+        WHERE c.status = :status
+          AND (c.startDate < :today OR (c.startDate = :today AND c.startTime <= :time))
+        ORDER BY c.classId
+    """)
+    List<String> findIdsStartedBy(@Param("status") EntityClass.Status status,
+                                  @Param("today") LocalDate today,
+                                  @Param("time") LocalTime time,
+                                  Limit limit);
+
+    @Query("""
+        SELECT c.classId FROM EntityClass c
+        WHERE c.status = :status
+          AND (c.endDate < :today OR (c.endDate = :today AND c.endTime < :time))
+        ORDER BY c.classId
+    """)
+    List<String> findIdsEndedBefore(@Param("status") EntityClass.Status status,
+                                    @Param("today") LocalDate today,
+                                    @Param("time") LocalTime time,
+                                    Limit limit);
+
+    // Kiểm tra lại trạng thái cũ: lớp bị đổi tay giữa lúc đọc id và lúc cập nhật thì bỏ qua
+    @Modifying
+    @Query("UPDATE EntityClass c SET c.status = :to, c.updatedAt = :now WHERE c.classId IN :classIds AND c.status = :from")
+    int updateStatus(@Param("classIds") Collection<String> classIds,
+                     @Param("from") EntityClass.Status from,
+                     @Param("to") EntityClass.Status to,
+                     @Param("now") LocalDateTime now);
+
     @Query("""
-        SELECT ec FROM EntityClass ec
-        WHERE (LOWER(ec.className) LIKE LOWER(CONCAT('%', :className, '%')))
-          AND (:grade = 0 or ec.grade = :grade)
-          AND (LOWER(ec.teacher.userId) LIKE LOWER(CONCAT('%', :teacherId, '%')))
-              AND (:status IS NULL OR ec.status = :status)
-          AND (:studentId = "" OR EXISTS (
-              SELECT 1 FROM ec.students s WHERE (LOWER(s.userId) LIKE LOWER(CONCAT('%', :studentId, '%')))
-          ))
+        SELECT new vn.edu.actvn.server.dto.response.KeyedValue(c.classId, s.userId)
+        FROM EntityClass c JOIN c.students s
+        WHERE c.classId IN :classIds
     """)
-    Page<EntityClass> search(
-         @Param("studentId") String studentId,
-         @Param("teacherId") String teacherId,
-         @Param("className") String className,
-         @Param("grade") Integer grade,
-         @Param("status") EntityClass.Status status,
-         Pageable pageable);
-
-    List<EntityClass> findByStatus(EntityClass.Status status);
+    List<KeyedValue<String>> findStudentIds(@Param("classIds") Collection<String> classIds);
+
+    @Query("""
+        SELECT new vn.edu.actvn.server.dto.response.KeyedValue(c.classId, day)
+        FROM EntityClass c JOIN c.daysOfWeek day
+        WHERE c.classId IN :classIds
+    """)
+    List<KeyedValue<DayOfWeek>> findDaysOfWeek(@Param("classIds") Collection<String> classIds);
+
+    @Query("SELECT new vn.edu.actvn.server.dto.response.search.ClassSuggestionSource(c.classId, c.className) FROM EntityClass c")
+    List<ClassSuggestionSource> findSuggestionSources();
+
+    @Query("SELECT new vn.edu.actvn.server.dto.response.search.ClassSuggestionSource(c.classId, c.className) FROM EntityClass c WHERE c.classId = :classId")
+    Optional<ClassSuggestionSource> findSuggestionSourceById(@Param("classId") String classId);
+
+    @Query("SELECT ec.grade AS grade, COUNT(ec) AS count FROM EntityClass ec WHERE ec.status = :status GROUP BY ec.grade")
+    List<GradeCount> countByStatusGroupByGrade(@Param("status") EntityClass.Status status);
 }
@@ -1,13 +1,21 @@
 package vn.edu.actvn.server.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import vn.edu.actvn.server.entity.InvalidatedToken;
 
-import java.sql.Date;
+import java.util.Date;
+import java.util.List;
 
 @Repository
 public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
-    int deleteByTypeAndExpiryTimeBefore(String type, Date date);
+    List<InvalidatedToken> findByExpiryTimeAfter(Date date);
+
+    @Modifying
+    @Query("DELETE FROM InvalidatedToken t WHERE t.expiryTime < :date")
+    int deleteExpiredBefore(@Param("date") Date date);
 }
@@ -0,0 +1,77 @@
+package vn.edu.actvn.server.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.entity.MonthlyFinanceRollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MonthlyFinanceRollupRepository extends JpaRepository<MonthlyFinanceRollup, LocalDate> {
+    // Native DML không khai báo bảng bị ghi thì Hibernate xoá toàn bộ second-level cache sau mỗi lần chạy
+    String ROLLUP_TABLE = "monthly_finance_rollup";
+
+    List<MonthlyFinanceRollup> findByPeriodMonthGreaterThanEqualAndPeriodMonthLessThan(LocalDate start, LocalDate end);
+
+    // Cộng dồn nguyên tử, không cần đọc trước nên không bị mất cập nhật khi ghi đồng thời
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ROLLUP_TABLE))
+    @Query(value = """
+        INSERT INTO monthly_finance_rollup (period_month, tuition_amount, tuition_paid, tuition_remaining, teacher_paid)
+        VALUES (:periodMonth, :tuitionAmount, :tuitionPaid, :tuitionRemaining, :teacherPaid)
+        ON CONFLICT (period_month) DO UPDATE SET
+            tuition_amount = monthly_finance_rollup.tuition_amount + EXCLUDED.tuition_amount,
+            tuition_paid = monthly_finance_rollup.tuition_paid + EXCLUDED.tuition_paid,
+            tuition_remaining = monthly_finance_rollup.tuition_remaining + EXCLUDED.tuition_remaining,
+            teacher_paid = monthly_finance_rollup.teacher_paid + EXCLUDED.teacher_paid
+    """, nativeQuery = true)
+    void addDelta(@Param("periodMonth") LocalDate periodMonth,
+                  @Param("tuitionAmount") BigDecimal tuitionAmount,
+                  @Param("tuitionPaid") BigDecimal tuitionPaid,
+                  @Param("tuitionRemaining") BigDecimal tuitionRemaining,
+                  @Param("teacherPaid") BigDecimal teacherPaid);
+
+    // Chặn các giao dịch ghi khác trong lúc dựng lại để không đếm trùng hoặc bỏ sót delta
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ROLLUP_TABLE))
+    @Query(value = "LOCK TABLE monthly_finance_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ROLLUP_TABLE))
+    @Query(value = "DELETE FROM monthly_finance_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ROLLUP_TABLE))
+    @Query(value = """
+        INSERT INTO monthly_finance_rollup (period_month, tuition_amount, tuition_paid, tuition_remaining, teacher_paid)
+        SELECT tf.fee_year_month,
+               COALESCE(SUM(tf.amount), 0),
+               COALESCE(SUM(tf.paid_amount), 0),
+               COALESCE(SUM(tf.remaining_amount), 0),
+               0
+        FROM tuition_fees tf
+        GROUP BY tf.fee_year_month
+    """, nativeQuery = true)
+    int insertTuitionTotals();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = ROLLUP_TABLE))
+    @Query(value = """
+        INSERT INTO monthly_finance_rollup (period_month, tuition_amount, tuition_paid, tuition_remaining, teacher_paid)
+        SELECT make_date(tp.year, tp.month, 1), 0, 0, 0, COALESCE(SUM(tp.paid_amount), 0)
+        FROM teacher_payment tp
+        GROUP BY tp.year, tp.month
+        ON CONFLICT (period_month) DO UPDATE SET teacher_paid = EXCLUDED.teacher_paid
+    """, nativeQuery = true)
+    int upsertTeacherPaymentTotals();
+}
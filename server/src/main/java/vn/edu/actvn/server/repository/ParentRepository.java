@@ -1,22 +1,31 @@
 package vn.edu.actvn.server.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.response.KeyedValue;
 import vn.edu.actvn.server.entity.Parent;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface ParentRepository extends JpaRepository<Parent, String> {
-    // Additional query methods can be defined here
+public interface ParentRepository extends JpaRepository<Parent, String>, JpaSpecificationExecutor<Parent> {
+
+    default List<Parent> autocomplete(String prefix, int limit) {
+        return findBy(UserSpecification.<Parent>suggesting(prefix), query -> query.limit(limit).all());
+    }
 
     @Query("""
-        SELECT p FROM Parent p
-            WHERE LOWER(p.fullName) LIKE LOWER(CONCAT('%', :fullName, '%')) 
-                AND LOWER(p.email) LIKE LOWER(CONCAT('%', :email, '%'))
+        SELECT new vn.edu.actvn.server.dto.response.KeyedValue(p.userId, studentId)
+        FROM Parent p JOIN p.studentIds studentId
+        WHERE p.userId IN :parentIds
     """)
-    Page<Parent> search(@Param("fullName") String fullName,@Param("email") String email, Pageable pageable);
+    List<KeyedValue<String>> findStudentIds(@Param("parentIds") Collection<String> parentIds);
+
+    // Additional query methods can be defined here
 }
 
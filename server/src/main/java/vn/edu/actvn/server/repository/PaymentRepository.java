@@ -2,22 +2,28 @@ package vn.edu.actvn.server.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.request.payment.PaymentSearchRequest;
 import vn.edu.actvn.server.entity.Payment;
+import vn.edu.actvn.server.repository.specification.PaymentSpecification;
 
 import java.util.List;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, String> {
-    @Query("""
-        SELECT p FROM Payment p
-        WHERE LOWER(p.tuitionFee.student.userId) LIKE LOWER(CONCAT('%', :studentId, '%'))
-           AND LOWER(p.tuitionFee.entityClass.classId) LIKE LOWER(CONCAT('%', :classId, '%'))
-    """)
-    Page<Payment> search(@Param("studentId") String studentId, @Param("classId") String classId, Pageable pageable);
+public interface PaymentRepository extends JpaRepository<Payment, String>, JpaSpecificationExecutor<Payment> {
+
+    default Page<Payment> search(PaymentSearchRequest request, Pageable pageable) {
+        return findAll(PaymentSpecification.matching(request), PaymentSpecification.SORTABLE.apply(pageable));
+    }
+
+    default Window<Payment> scroll(PaymentSearchRequest request, Sort sort, ScrollPosition position, int limit) {
+        return findBy(PaymentSpecification.matching(request), query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
 
     Page<Payment> findAllByTuitionFee_TuitionFeeId(String tuitionFeeId, Pageable pageable);
 
@@ -0,0 +1,76 @@
+package vn.edu.actvn.server.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Runs a {@link Specification} as a constructor-expression query ({@code select new Row(...)}) instead of loading
+ * entities: only the listed columns are read, nothing is attached to the persistence context and no dirty-checking
+ * snapshot is kept. Filtering, sorting and paging behave like {@code JpaSpecificationExecutor.findAll(spec, pageable)}.
+ */
+@Repository
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ProjectionQueries {
+    EntityManager entityManager;
+
+    @FunctionalInterface
+    public interface Columns<T> {
+        // Thứ tự cột phải khớp với constructor của kiểu dòng
+        List<Selection<?>> select(Root<T> root, CriteriaBuilder cb);
+    }
+
+    public <T, R> Page<R> findPage(Class<T> domainType, Specification<T> spec, Pageable pageable,
+                                   Class<R> rowType, Columns<T> columns) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(rowType);
+        Root<T> root = query.from(domainType);
+        applySpecification(spec, root, query, cb);
+        query.select(cb.construct(rowType, columns.select(root, cb).toArray(Selection[]::new)));
+        // Như findAll(spec, pageable): sort của pageable thay thế thứ tự do specification đặt (vd. xếp hạng theo tên)
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<R> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(domainType, spec));
+    }
+
+    private <T> long count(Class<T> domainType, Specification<T> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(domainType);
+        applySpecification(spec, root, query, cb);
+        query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+        query.orderBy(List.of());
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static <T> void applySpecification(Specification<T> spec, Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (spec == null) return;
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package vn.edu.actvn.server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.entity.StudentAttendance;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StudentAttendanceRepository extends JpaRepository<StudentAttendance, StudentAttendance.Key> {
+
+    // Chỉ nạp các dòng được nêu trong request, không nạp cả buổi điểm danh
+    List<StudentAttendance> findByAttendance_AttendanceIdAndStudentIdIn(String attendanceId, Collection<String> studentIds);
+
+    // Số buổi có mặt của mọi học sinh trong lớp trong khoảng [start, end), gộp trong một truy vấn
+    @Query("""
+        SELECT new vn.edu.actvn.server.dto.response.KeyedValue(sa.studentId,
+               SUM(CASE WHEN sa.status = vn.edu.actvn.server.entity.Attendance.Status.PRESENT THEN 1L ELSE 0L END))
+        FROM StudentAttendance sa JOIN sa.attendance a
+        WHERE a.entityClass.classId = :classId AND a.date >= :start AND a.date < :end
+        GROUP BY sa.studentId
+    """)
+    List<KeyedValue<Long>> countPresentDays(@Param("classId") String classId,
+                                            @Param("start") LocalDate start,
+                                            @Param("end") LocalDate end);
+
+    // Số buổi có mặt của một học sinh: chỉ đếm trong DB, đi theo idx_attendance_student_student_status
+    @Query("""
+        SELECT COUNT(sa) FROM StudentAttendance sa JOIN sa.attendance a
+        WHERE sa.studentId = :studentId
+          AND sa.status = vn.edu.actvn.server.entity.Attendance.Status.PRESENT
+          AND a.entityClass.classId = :classId AND a.date >= :start AND a.date < :end
+    """)
+    long countPresentDaysOfStudent(@Param("classId") String classId,
+                                   @Param("studentId") String studentId,
+                                   @Param("start") LocalDate start,
+                                   @Param("end") LocalDate end);
+}
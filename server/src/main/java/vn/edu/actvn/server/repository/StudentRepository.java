@@ -1,26 +1,68 @@
 package vn.edu.actvn.server.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.dto.response.dashboard.MonthlyCount;
+import vn.edu.actvn.server.entity.ClassDiscount;
 import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
 
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface StudentRepository extends JpaRepository<Student, String> {
-    // Additional query methods can be defined here
+public interface StudentRepository extends JpaRepository<Student, String>, JpaSpecificationExecutor<Student> {
+
+    // Keyset: trang sau lấy theo (cột sort, id) > dòng cuối của trang trước, không OFFSET và không COUNT
+    default Window<Student> scroll(UserSearchRequest request, Sort sort, ScrollPosition position, int limit) {
+        return findBy(UserSpecification.<Student>filtering(request), query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
+
     @Query("""
-        SELECT s FROM Student s
-            WHERE LOWER(s.fullName) LIKE LOWER(CONCAT('%', :fullName, '%'))
-                AND LOWER(s.email) LIKE LOWER(CONCAT('%', :email, '%'))
+        SELECT new vn.edu.actvn.server.dto.response.KeyedValue(s.userId, d)
+        FROM Student s JOIN s.classDiscounts d
+        WHERE s.userId IN :studentIds
     """)
-    Page<Student> search(@Param("fullName") String fullName, @Param("email") String email, Pageable pageable);
+    List<KeyedValue<ClassDiscount>> findClassDiscounts(@Param("studentIds") Collection<String> studentIds);
+
+    // Đóng lớp: xoá ưu đãi của lớp bằng một câu lệnh thay vì sửa classDiscounts của từng học sinh
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "student_class_discounts"))
+    @Query(value = "DELETE FROM student_class_discounts WHERE class_id IN (:classIds)", nativeQuery = true)
+    int deleteClassDiscounts(@Param("classIds") Collection<String> classIds);
+
+    // Job đóng lớp: chỉ xoá ưu đãi của các lớp trong lô thực sự đã CLOSED (updateStatus bỏ qua lớp bị đổi tay giữa chừng)
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "student_class_discounts"))
+    @Query(value = """
+        DELETE FROM student_class_discounts d
+        USING classes c
+        WHERE d.class_id = c.class_id AND c.class_id IN (:classIds) AND c.status = 'CLOSED'
+    """, nativeQuery = true)
+    int deleteClosedClassDiscounts(@Param("classIds") Collection<String> classIds);
+
+    default List<Student> autocomplete(String prefix, int limit) {
+        return findBy(UserSpecification.<Student>suggesting(prefix), query -> query.limit(limit).all());
+    }
+
+    // Additional query methods can be defined here
 
 //    Page<Student> findByFullNameContainingIgnoreCase(String fullName, Pageable pageable);
     Long countByCreatedAtBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
@@ -31,4 +73,20 @@ public interface StudentRepository extends JpaRepository<Student, String> {
     @Query("SELECT COUNT(s) FROM Student s WHERE s.classDiscounts IS EMPTY AND s.createdAt >= :start AND s.createdAt <= :end")
     Long countStudentsWithNoClassDiscountsByCreatedAtBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
+    @Query("""
+        SELECT EXTRACT(MONTH FROM s.createdAt) AS monthOfYear, COUNT(s) AS count
+        FROM Student s
+        WHERE s.createdAt >= :start AND s.createdAt < :end
+        GROUP BY EXTRACT(MONTH FROM s.createdAt)
+    """)
+    List<MonthlyCount> countCreatedGroupByMonth(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("""
+        SELECT EXTRACT(MONTH FROM s.createdAt) AS monthOfYear, COUNT(s) AS count
+        FROM Student s
+        WHERE s.classDiscounts IS EMPTY AND s.createdAt >= :start AND s.createdAt < :end
+        GROUP BY EXTRACT(MONTH FROM s.createdAt)
+    """)
+    List<MonthlyCount> countNoClassDiscountsCreatedGroupByMonth(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
 }
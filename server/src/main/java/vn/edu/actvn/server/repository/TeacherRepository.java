@@ -1,25 +1,22 @@
 package vn.edu.actvn.server.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 import vn.edu.actvn.server.entity.Teacher;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TeacherRepository extends JpaRepository<Teacher, String> {
-    // Additional query methods can be defined here
+public interface TeacherRepository extends JpaRepository<Teacher, String>, JpaSpecificationExecutor<Teacher> {
+
+    default List<Teacher> autocomplete(String prefix, int limit) {
+        return findBy(UserSpecification.<Teacher>suggesting(prefix), query -> query.limit(limit).all());
+    }
 
-    @Query("""
-        SELECT t FROM Teacher t
-        WHERE LOWER(t.fullName) LIKE LOWER(CONCAT('%', :fullName, '%'))
-        AND LOWER(t.email) LIKE LOWER(CONCAT('%', :email, '%'))
-    """)
-    Page<Teacher> search(@Param("fullName") String fullName,@Param("email") String email, Pageable pageable);
+    // Additional query methods can be defined here
 
     Optional<Teacher> findByUsername(String teacherName);
 }
@@ -1,31 +1,115 @@
 package vn.edu.actvn.server.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.request.tuitionfee.TuitionFeeSearchRequest;
+import vn.edu.actvn.server.dto.response.tuitionfee.TuitionFeeUpsertResult;
 import vn.edu.actvn.server.entity.TuitionFee;
+import vn.edu.actvn.server.repository.specification.TuitionFeeSpecification;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TuitionFeeRepository extends JpaRepository<TuitionFee, String> {
+public interface TuitionFeeRepository extends JpaRepository<TuitionFee, String>, JpaSpecificationExecutor<TuitionFee> {
+
+    default Page<TuitionFee> search(TuitionFeeSearchRequest request, Pageable pageable) {
+        return findAll(TuitionFeeSpecification.matching(request), TuitionFeeSpecification.SORTABLE.apply(pageable));
+    }
+
+    default Window<TuitionFee> scroll(TuitionFeeSearchRequest request, Sort sort, ScrollPosition position, int limit) {
+        return findBy(TuitionFeeSpecification.matching(request), query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
+
     Page<TuitionFee> findByStudent_UserId(Pageable pageable,String studentId);
-    TuitionFee findByStudent_UserIdAndYearMonth(String studentId, LocalDate yearMonth);
-    @Query("""
-    SELECT tf FROM TuitionFee tf
-        LEFT JOIN tf.student student
-        LEFT JOIN tf.entityClass class
-    WHERE (LOWER(tf.student.userId) LIKE LOWER(CONCAT('%', :studentId, '%')))
-      AND (LOWER(tf.entityClass.classId) LIKE LOWER(CONCAT('%', :classId, '%')))
-      AND (tf.yearMonth = COALESCE(:yearMonth, tf.yearMonth))
-""")
-    Page<TuitionFee> search(@Param("studentId") String studentId,@Param("classId") String classId, @Param("yearMonth") LocalDate yearMonth, Pageable pageable);
+
+    // Tạo hoặc cập nhật khoản học phí theo khoá (học sinh, lớp, tháng) trong một câu lệnh, giữ nguyên số đã đóng.
+    // previous được khoá FOR UPDATE và chỉ được đọc sau khi ON CONFLICT đã khoá dòng, nên là bản vừa commit gần nhất.
+    // Không trả về dòng nào khi transaction khác vừa chèn cùng khoá sau snapshot của câu lệnh: gọi lại là cập nhật dòng đó
+    // Học phí tính lại thấp hơn số đã đóng thì còn nợ 0, không âm; phần đóng thừa là paid_amount - amount
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tuition_fees"))
+    @Query(value = """
+        WITH previous AS (
+            SELECT amount, paid_amount, remaining_amount FROM tuition_fees
+            WHERE student_id = :studentId AND class_id = :classId AND fee_year_month = :yearMonth
+            FOR UPDATE
+        )
+        INSERT INTO tuition_fees AS tf
+            (tuition_fee_id, student_id, class_id, fee_year_month, amount, paid_amount, remaining_amount, created_at)
+        VALUES (:tuitionFeeId, :studentId, :classId, :yearMonth, :amount, 0, :amount, :createdAt)
+        ON CONFLICT (student_id, class_id, fee_year_month) DO UPDATE SET
+            amount = EXCLUDED.amount,
+            paid_amount = COALESCE(tf.paid_amount, 0),
+            remaining_amount = GREATEST(EXCLUDED.amount - COALESCE(tf.paid_amount, 0), 0)
+            WHERE EXISTS (SELECT 1 FROM previous)
+        RETURNING tf.tuition_fee_id AS tuitionFeeId,
+                  tf.student_id AS studentId,
+                  tf.amount AS amount,
+                  tf.paid_amount AS paidAmount,
+                  tf.remaining_amount AS remainingAmount,
+                  (SELECT amount FROM previous) AS previousAmount,
+                  (SELECT paid_amount FROM previous) AS previousPaidAmount,
+                  (SELECT remaining_amount FROM previous) AS previousRemainingAmount
+    """, nativeQuery = true)
+    Optional<TuitionFeeUpsertResult> upsert(@Param("tuitionFeeId") String tuitionFeeId,
+                                            @Param("studentId") String studentId,
+                                            @Param("classId") String classId,
+                                            @Param("yearMonth") LocalDate yearMonth,
+                                            @Param("amount") BigDecimal amount,
+                                            @Param("createdAt") LocalDateTime createdAt);
+
+    // Như upsert nhưng cho nhiều học sinh của cùng lớp/tháng trong một câu lệnh (tính lại học phí cả lớp); ba mảng
+    // song song theo từng học sinh. Học sinh không có dòng trả về là khoản vừa được transaction khác chèn: gọi lại
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tuition_fees"))
+    @Query(value = """
+        WITH input AS (
+            SELECT * FROM unnest(CAST(:tuitionFeeIds AS varchar[]), CAST(:studentIds AS varchar[]),
+                                 CAST(:amounts AS numeric[])) AS i(tuition_fee_id, student_id, amount)
+        ),
+        previous AS (
+            SELECT student_id, amount, paid_amount, remaining_amount FROM tuition_fees
+            WHERE class_id = :classId AND fee_year_month = :yearMonth
+              AND student_id IN (SELECT student_id FROM input)
+            FOR UPDATE
+        )
+        INSERT INTO tuition_fees AS tf
+            (tuition_fee_id, student_id, class_id, fee_year_month, amount, paid_amount, remaining_amount, created_at)
+        SELECT i.tuition_fee_id, i.student_id, :classId, :yearMonth, i.amount, 0, i.amount, :createdAt FROM input i
+        ON CONFLICT (student_id, class_id, fee_year_month) DO UPDATE SET
+            amount = EXCLUDED.amount,
+            paid_amount = COALESCE(tf.paid_amount, 0),
+            remaining_amount = GREATEST(EXCLUDED.amount - COALESCE(tf.paid_amount, 0), 0)
+            WHERE EXISTS (SELECT 1 FROM previous p WHERE p.student_id = tf.student_id)
+        RETURNING tf.tuition_fee_id AS tuitionFeeId,
+                  tf.student_id AS studentId,
+                  tf.amount AS amount,
+                  tf.paid_amount AS paidAmount,
+                  tf.remaining_amount AS remainingAmount,
+                  (SELECT p.amount FROM previous p WHERE p.student_id = tf.student_id) AS previousAmount,
+                  (SELECT p.paid_amount FROM previous p WHERE p.student_id = tf.student_id) AS previousPaidAmount,
+                  (SELECT p.remaining_amount FROM previous p WHERE p.student_id = tf.student_id) AS previousRemainingAmount
+    """, nativeQuery = true)
+    List<TuitionFeeUpsertResult> upsertAll(@Param("tuitionFeeIds") String[] tuitionFeeIds,
+                                           @Param("studentIds") String[] studentIds,
+                                           @Param("amounts") BigDecimal[] amounts,
+                                           @Param("classId") String classId,
+                                           @Param("yearMonth") LocalDate yearMonth,
+                                           @Param("createdAt") LocalDateTime createdAt);
 
     // Summary tuition fees for a student in a specific month
     @Query("""
@@ -40,6 +124,4 @@ public interface TuitionFeeRepository extends JpaRepository<TuitionFee, String>
     """)
     BigDecimal getTotalUnpaidAmountByMonth(@Param("yearMonth") LocalDate yearMonth);
 
-
-
 }
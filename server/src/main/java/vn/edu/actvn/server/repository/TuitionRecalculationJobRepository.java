@@ -0,0 +1,57 @@
+package vn.edu.actvn.server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import vn.edu.actvn.server.dto.response.tuitionfee.TuitionRecalculationBacklog;
+import vn.edu.actvn.server.entity.TuitionRecalculationJob;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+// Mọi mốc thời gian lấy theo now() của DB để các node lệch đồng hồ vẫn thấy cùng thứ tự
+@Repository
+public interface TuitionRecalculationJobRepository
+        extends JpaRepository<TuitionRecalculationJob, TuitionRecalculationJob.Key> {
+
+    // Gom sửa đổi: (lớp, tháng) đã chờ thì giữ nguyên, chỉ kéo hạn về sớm nếu job đang chờ sau một lần lỗi.
+    // DO UPDATE (không phải DO NOTHING) để đợi job đang chạy giữ khoá dòng: job đó xoá dòng khi commit nên dòng mới
+    // được chèn lại và sửa đổi này không bị mất
+    @Modifying
+    @Query(value = """
+        INSERT INTO tuition_recalculation_jobs AS j (class_id, fee_month, queued_at, due_at, attempts)
+        VALUES (:classId, :month, now(), now() + make_interval(secs => :delaySeconds), 0)
+        ON CONFLICT (class_id, fee_month) DO UPDATE SET due_at = LEAST(j.due_at, EXCLUDED.due_at)
+    """, nativeQuery = true)
+    int enqueue(@Param("classId") String classId, @Param("month") LocalDate month,
+                @Param("delaySeconds") double delaySeconds);
+
+    // Khoá job đến hạn đầu tiên cho tới hết transaction; SKIP LOCKED để các node chạy song song không lấy trùng
+    @Query(value = """
+        SELECT * FROM tuition_recalculation_jobs
+        WHERE due_at <= now()
+        ORDER BY due_at
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    Optional<TuitionRecalculationJob> lockNextDue();
+
+    @Modifying
+    @Query(value = """
+        UPDATE tuition_recalculation_jobs
+        SET attempts = attempts + 1, due_at = now() + make_interval(secs => :backoffSeconds), last_error = :error
+        WHERE class_id = :classId AND fee_month = :month
+    """, nativeQuery = true)
+    int reschedule(@Param("classId") String classId, @Param("month") LocalDate month,
+                   @Param("backoffSeconds") double backoffSeconds, @Param("error") String error);
+
+    @Query(value = """
+        SELECT count(*) AS pending,
+               extract(epoch FROM now() - min(queued_at)) AS lagSeconds,
+               extract(epoch FROM min(due_at) - now()) AS nextDueSeconds
+        FROM tuition_recalculation_jobs
+    """, nativeQuery = true)
+    TuitionRecalculationBacklog backlog();
+}
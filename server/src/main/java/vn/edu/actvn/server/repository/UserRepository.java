@@ -1,22 +1,58 @@
 package vn.edu.actvn.server.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
+import vn.edu.actvn.server.dto.response.search.UserSuggestionSource;
+import vn.edu.actvn.server.dto.response.user.CurrentUser;
 import vn.edu.actvn.server.entity.User;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, JpaSpecificationExecutor<User> {
     boolean existsByUsername(String username);
 
     Optional<User> findByUsername(String username);
 
+    @Query("""
+        SELECT new vn.edu.actvn.server.dto.response.user.CurrentUser(u.userId, u.username, r.name)
+        FROM User u LEFT JOIN u.role r
+        WHERE u.username = :username
+    """)
+    Optional<CurrentUser> findCurrentUserByUsername(@Param("username") String username);
+
     Page<User> findByRole_Name(Pageable pageable, String roleName);
 
+    default Window<User> scroll(UserSearchRequest request, Sort sort, ScrollPosition position, int limit) {
+        return findBy(UserSpecification.filtering(request), query -> query.sortBy(sort).limit(limit).scroll(position));
+    }
+
     Optional<User> findByEmail(String email);
+
+    @Query("""
+        SELECT new vn.edu.actvn.server.dto.response.search.UserSuggestionSource(u.userId, u.fullName, u.username, u.role.name)
+        FROM User u
+        WHERE u.role.name IN :roles
+    """)
+    List<UserSuggestionSource> findSuggestionSources(@Param("roles") Collection<String> roles);
+
+    @Query("""
+        SELECT new vn.edu.actvn.server.dto.response.search.UserSuggestionSource(u.userId, u.fullName, u.username, u.role.name)
+        FROM User u
+        WHERE u.userId = :userId
+    """)
+    Optional<UserSuggestionSource> findSuggestionSourceById(@Param("userId") String userId);
 }
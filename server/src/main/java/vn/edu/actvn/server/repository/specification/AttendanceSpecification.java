@@ -0,0 +1,28 @@
+package vn.edu.actvn.server.repository.specification;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import vn.edu.actvn.server.dto.request.attendance.AttendanceSearchRequest;
+import vn.edu.actvn.server.entity.Attendance;
+
+import java.util.Map;
+
+public class AttendanceSpecification {
+
+    public static final SortWhitelist SORTABLE = SortWhitelist.of(Sort.by(Sort.Direction.DESC, "date"), Map.of(
+            "attendanceId", "attendanceId",
+            "date", "date"));
+
+    public static final SortWhitelist SCROLLABLE = SORTABLE;
+
+    // Lọc theo học sinh bằng EXISTS trên attendance_student nên không cần SELECT DISTINCT
+    public static Specification<Attendance> matching(AttendanceSearchRequest request) {
+        return SearchSpecification.<Attendance>builder()
+                .equal("entityClass.classId", request.getClassId())
+                .equal("date", request.getDate())
+                .containsElement("studentAttendances", "studentId", request.getStudentId())
+                .build();
+    }
+
+    private AttendanceSpecification() {}
+}
@@ -0,0 +1,67 @@
+package vn.edu.actvn.server.repository.specification;
+
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
+import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+
+import java.util.List;
+import java.util.Map;
+
+// Chỉ sinh điều kiện cho bộ lọc có giá trị; ID so sánh bằng để dùng được index teacher_id / class_students.student_id
+public class ClassSpecification {
+
+    public static final SortWhitelist SORTABLE = SortWhitelist.of(Sort.by("classId"), Map.of(
+            "className", "className",
+            "grade", "grade",
+            "year", "year",
+            "roomName", "roomName",
+            "status", "status",
+            "startDate", "startDate",
+            "createdAt", "createdAt",
+            "teacher.fullName", "teacher.fullName"));
+
+    public static final SortWhitelist SCROLLABLE = SortWhitelist.of(Sort.by("classId"), Map.of(
+            "classId", "classId",
+            "className", "className",
+            "createdAt", "createdAt"));
+
+    public static Specification<EntityClass> matching(ClassSearchRequest request) {
+        return SearchSpecification.<EntityClass>builder()
+                .contains("className", request.getClassName())
+                .equal("grade", request.getGrade() != null && request.getGrade() > 0 ? request.getGrade() : null)
+                .equal("status", request.getStatus())
+                .equal("teacher.userId", request.getTeacherId())
+                .containsElement("students", "userId", request.getStudentId())
+                .build();
+    }
+
+    // Cột của ClassListItem; teacher.userId đọc thẳng khoá ngoại teacher_id, không join sang users
+    public static ProjectionQueries.Columns<EntityClass> listColumns() {
+        return (root, cb) -> List.of(
+                root.get("classId"),
+                root.get("className"),
+                root.get("year"),
+                root.get("grade"),
+                root.get("roomName"),
+                root.get("status"),
+                root.get("teacher").get("userId"),
+                root.get("unitPrice"),
+                root.get("startDate"),
+                root.get("endDate"),
+                root.get("startTime"),
+                root.get("endTime"));
+    }
+
+    // Fetch join không dùng được trong truy vấn COUNT: chỉ ghép vào truy vấn không phân trang theo offset (scroll)
+    public static Specification<EntityClass> fetchTeacher() {
+        return (root, query, cb) -> {
+            root.fetch("teacher", JoinType.LEFT);
+            return null;
+        };
+    }
+
+    private ClassSpecification() {}
+}
@@ -0,0 +1,32 @@
+package vn.edu.actvn.server.repository.specification;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import vn.edu.actvn.server.dto.request.payment.PaymentSearchRequest;
+import vn.edu.actvn.server.entity.Payment;
+
+import java.util.Map;
+
+public class PaymentSpecification {
+
+    public static final SortWhitelist SORTABLE = SortWhitelist.of(Sort.by(Sort.Direction.DESC, "createdAt"), Map.of(
+            "id", "paymentId",
+            "paymentId", "paymentId",
+            "paidAmount", "paidAmount",
+            "createdAt", "createdAt"));
+
+    public static final SortWhitelist SCROLLABLE = SortWhitelist.of(Sort.by(Sort.Direction.DESC, "createdAt"), Map.of(
+            "id", "paymentId",
+            "paymentId", "paymentId",
+            "createdAt", "createdAt"));
+
+    // tuitionFee.student.id / tuitionFee.entityClass.id chỉ join tuition_fees, không join sang users/classes
+    public static Specification<Payment> matching(PaymentSearchRequest request) {
+        return SearchSpecification.<Payment>builder()
+                .equal("tuitionFee.student.userId", request.getStudentId())
+                .equal("tuitionFee.entityClass.classId", request.getClassId())
+                .build();
+    }
+
+    private PaymentSpecification() {}
+}
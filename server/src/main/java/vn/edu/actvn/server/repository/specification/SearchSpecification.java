@@ -0,0 +1,116 @@
+package vn.edu.actvn.server.repository.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds a {@link Specification} from optional filters. A filter whose value is null or blank adds no predicate at
+ * all, so an empty search is a plain {@code SELECT} instead of a chain of {@code LIKE '%%'} conditions. Paths are
+ * dotted attribute names ({@code "teacher.userId"}); {@code x.id} on a many-to-one resolves to the foreign key column.
+ */
+public class SearchSpecification<T> {
+
+    // Hàm IMMUTABLE bọc unaccent(), do DatabaseIndexInitializer tạo để dùng được trong biểu thức index
+    public static final String FOLD_FUNCTION = "f_unaccent";
+
+    private final List<Specification<T>> parts = new ArrayList<>();
+
+    public static <T> SearchSpecification<T> builder() {
+        return new SearchSpecification<>();
+    }
+
+    public SearchSpecification<T> equal(String path, Object value) {
+        if (isAbsent(value)) return this;
+        Object expected = value instanceof String text ? text.trim() : value;
+        parts.add((root, query, cb) -> cb.equal(path(root, path), expected));
+        return this;
+    }
+
+    // LIKE 'x%' trên lower(cột): dùng được index lower(...) text_pattern_ops
+    public SearchSpecification<T> prefix(String path, String value) {
+        if (isAbsent(value)) return this;
+        String pattern = escapeLike(value.trim().toLowerCase()) + "%";
+        parts.add((root, query, cb) -> cb.like(cb.lower(path(root, path)), pattern, '\\'));
+        return this;
+    }
+
+    public SearchSpecification<T> contains(String path, String value) {
+        if (isAbsent(value)) return this;
+        String pattern = "%" + escapeLike(value.trim().toLowerCase()) + "%";
+        parts.add((root, query, cb) -> cb.like(cb.lower(path(root, path)), pattern, '\\'));
+        return this;
+    }
+
+    // So khớp không dấu: "nguyen" khớp "Nguyễn"; cùng biểu thức với index trigram lower(f_unaccent(cột))
+    public SearchSpecification<T> containsFolded(String path, String value) {
+        if (isAbsent(value)) return this;
+        String pattern = "%" + escapeLike(value.trim()) + "%";
+        parts.add((root, query, cb) -> cb.like(fold(cb, path(root, path)), fold(cb, bind(cb, pattern)), '\\'));
+        return this;
+    }
+
+    // EXISTS (SELECT 1 FROM <collection> WHERE <attribute> = value), không cần DISTINCT như khi JOIN trực tiếp
+    public SearchSpecification<T> containsElement(String collection, String attribute, Object value) {
+        if (isAbsent(value)) return this;
+        Object expected = value instanceof String text ? text.trim() : value;
+        parts.add((root, query, cb) -> {
+            Subquery<Integer> subquery = query.subquery(Integer.class);
+            From<?, ?> correlated = subquery.correlate(root);
+            Join<?, ?> element = correlated.join(collection);
+            subquery.select(cb.literal(1)).where(cb.equal(element.get(attribute), expected));
+            return cb.exists(subquery);
+        });
+        return this;
+    }
+
+    public SearchSpecification<T> and(Specification<T> specification) {
+        if (specification != null) parts.add(specification);
+        return this;
+    }
+
+    public Specification<T> build() {
+        List<Specification<T>> snapshot = List.copyOf(parts);
+        return (root, query, cb) -> cb.and(snapshot.stream()
+                .map(part -> part.toPredicate(root, query, cb))
+                .filter(Objects::nonNull)
+                .toArray(Predicate[]::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    static <Y> Path<Y> path(Root<?> root, String dottedPath) {
+        Path<?> path = root;
+        for (String attribute : dottedPath.split("\\.")) {
+            path = path.get(attribute);
+        }
+        return (Path<Y>) path;
+    }
+
+    public static Expression<String> fold(CriteriaBuilder cb, Expression<String> expression) {
+        return cb.lower(cb.function(FOLD_FUNCTION, String.class, expression));
+    }
+
+    // cb.literal() bị Hibernate chèn thẳng vào SQL; value() giữ nó là tham số bind
+    public static Expression<String> bind(CriteriaBuilder cb, String value) {
+        return ((HibernateCriteriaBuilder) cb).value(value);
+    }
+
+    static boolean isAbsent(Object value) {
+        return value == null || (value instanceof String text && text.isBlank());
+    }
+
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,54 @@
+package vn.edu.actvn.server.repository.specification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the sort fields a listing accepts from clients to entity paths backed by an index. Unknown fields are
+ * dropped instead of failing the request with a {@code PropertyReferenceException}; if nothing usable is left the
+ * default sort keeps paging deterministic.
+ * Whitelists used for keyset scrolling ({@code SCROLLABLE}) only list non-null columns: the next page is selected with
+ * {@code >} / {@code <} on the last row's keys, and a null key would silently end the walk.
+ */
+@Slf4j
+public class SortWhitelist {
+
+    private final Map<String, String> fields;
+    private final Sort defaultSort;
+
+    private SortWhitelist(Map<String, String> fields, Sort defaultSort) {
+        this.fields = fields;
+        this.defaultSort = defaultSort;
+    }
+
+    // fields: tên nhận từ client -> đường dẫn thuộc tính của entity
+    public static SortWhitelist of(Sort defaultSort, Map<String, String> fields) {
+        return new SortWhitelist(Map.copyOf(fields), defaultSort);
+    }
+
+    public Pageable apply(Pageable pageable) {
+        Sort sort = apply(pageable.getSort());
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
+
+    public Sort apply(Sort requested) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : requested) {
+            String path = fields.get(order.getProperty());
+            if (path == null) {
+                log.debug("Ignoring unsupported sort field '{}'", order.getProperty());
+                continue;
+            }
+            orders.add(order.withProperty(path));
+        }
+        return orders.isEmpty() ? defaultSort : Sort.by(orders);
+    }
+}
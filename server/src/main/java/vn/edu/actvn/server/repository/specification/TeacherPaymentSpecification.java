@@ -0,0 +1,36 @@
+package vn.edu.actvn.server.repository.specification;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import vn.edu.actvn.server.dto.request.teacherpayment.TeacherPaymentSearchRequest;
+import vn.edu.actvn.server.entity.TeacherPayment;
+
+import java.util.Map;
+
+public class TeacherPaymentSpecification {
+
+    public static final SortWhitelist SORTABLE = SortWhitelist.of(
+            Sort.by(Sort.Direction.DESC, "year", "month", "createdAt"), Map.of(
+                    "id", "id",
+                    "month", "month",
+                    "year", "year",
+                    "amount", "amount",
+                    "paidAmount", "paidAmount",
+                    "remainingAmount", "remainingAmount",
+                    "status", "status",
+                    "createdAt", "createdAt"));
+
+    public static Specification<TeacherPayment> matching(TeacherPaymentSearchRequest request) {
+        return SearchSpecification.<TeacherPayment>builder()
+                .equal("teacher.userId", request.getTeacherId())
+                .equal("year", positive(request.getYear()))
+                .equal("month", positive(request.getMonth()))
+                .build();
+    }
+
+    private static Integer positive(Integer value) {
+        return value != null && value > 0 ? value : null;
+    }
+
+    private TeacherPaymentSpecification() {}
+}
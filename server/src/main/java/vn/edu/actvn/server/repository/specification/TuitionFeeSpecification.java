@@ -0,0 +1,34 @@
+package vn.edu.actvn.server.repository.specification;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import vn.edu.actvn.server.dto.request.tuitionfee.TuitionFeeSearchRequest;
+import vn.edu.actvn.server.entity.TuitionFee;
+
+import java.util.Map;
+
+public class TuitionFeeSpecification {
+
+    public static final SortWhitelist SORTABLE = SortWhitelist.of(Sort.by(Sort.Direction.DESC, "yearMonth"), Map.of(
+            "tuitionFeeId", "tuitionFeeId",
+            "yearMonth", "yearMonth",
+            "amount", "amount",
+            "paidAmount", "paidAmount",
+            "remainingAmount", "remainingAmount",
+            "createdAt", "createdAt"));
+
+    public static final SortWhitelist SCROLLABLE = SortWhitelist.of(Sort.by(Sort.Direction.DESC, "yearMonth"), Map.of(
+            "tuitionFeeId", "tuitionFeeId",
+            "yearMonth", "yearMonth",
+            "createdAt", "createdAt"));
+
+    public static Specification<TuitionFee> matching(TuitionFeeSearchRequest request) {
+        return SearchSpecification.<TuitionFee>builder()
+                .equal("student.userId", request.getStudentId())
+                .equal("entityClass.classId", request.getClassId())
+                .equal("yearMonth", request.getYearMonth() != null ? request.getYearMonth().atDay(1) : null)
+                .build();
+    }
+
+    private TuitionFeeSpecification() {}
+}
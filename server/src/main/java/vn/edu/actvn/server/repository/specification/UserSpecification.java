@@ -0,0 +1,125 @@
+package vn.edu.actvn.server.repository.specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
+import vn.edu.actvn.server.entity.User;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Search over Student/Teacher/Parent. Name and email are matched accent-insensitively through the trigram indexes
+ * {@code idx_users_full_name_trgm} / {@code idx_users_email_trgm}; a name search without an explicit sort is ordered
+ * by relevance: full name starting with the term, then a word starting with it, then any other match.
+ */
+public class UserSpecification {
+
+    // sắp xếp theo fullName thực chất là theo tên (lastName) như trước đây
+    public static final SortWhitelist SORTABLE = SortWhitelist.of(Sort.by("userId"), Map.of(
+            "userId", "userId",
+            "username", "username",
+            "fullName", "lastName",
+            "lastName", "lastName",
+            "email", "email",
+            "dob", "dob",
+            "createdAt", "createdAt"));
+
+    public static final SortWhitelist SCROLLABLE = SortWhitelist.of(Sort.by("userId"), Map.of(
+            "userId", "userId",
+            "username", "username",
+            "fullName", "lastName",
+            "lastName", "lastName",
+            "createdAt", "createdAt"));
+
+    public static <T extends User> Specification<T> matching(UserSearchRequest request) {
+        String fullName = request.getFullName();
+        return UserSpecification.<T>filtering(request)
+                .and(SearchSpecification.isAbsent(fullName) ? null : rankedByName(fullName.trim()));
+    }
+
+    // Chỉ lọc, không đặt thứ tự theo độ liên quan: dùng cho keyset scroll, nơi thứ tự phải là (cột sort, id)
+    public static <T extends User> Specification<T> filtering(UserSearchRequest request) {
+        return SearchSpecification.<T>builder()
+                .containsFolded("fullName", request.getFullName())
+                .containsFolded("email", request.getEmail())
+                .build();
+    }
+
+    // Gợi ý khi gõ: họ tên hoặc một từ trong họ tên bắt đầu bằng chuỗi đã nhập
+    public static <T extends User> Specification<T> suggesting(String prefix) {
+        String term = prefix.trim();
+        Specification<T> startsWith = (root, query, cb) -> cb.or(
+                cb.like(foldedName(root, cb), fold(cb, escaped(term) + "%"), '\\'),
+                cb.like(foldedName(root, cb), fold(cb, "% " + escaped(term) + "%"), '\\'));
+        return startsWith.and(rankedByName(term));
+    }
+
+    // Cột của UserListItem; parentId/salary chỉ có ở Student/Teacher, truyền null để chọn NULL
+    public static <T extends User> ProjectionQueries.Columns<T> listColumns(
+            BiFunction<Root<T>, CriteriaBuilder, Expression<String>> parentId,
+            BiFunction<Root<T>, CriteriaBuilder, Expression<BigDecimal>> salary) {
+        return (root, cb) -> List.of(
+                root.get("userId"),
+                root.get("username"),
+                root.get("fullName"),
+                root.get("email"),
+                root.get("gender"),
+                root.get("address"),
+                root.get("phoneNumber"),
+                root.get("avatarUrl"),
+                root.get("dob"),
+                root.join("role", JoinType.LEFT).get("name"),
+                parentId == null ? cb.nullLiteral(String.class) : parentId.apply(root, cb),
+                salary == null ? cb.nullLiteral(BigDecimal.class) : salary.apply(root, cb));
+    }
+
+    // Không có sort từ client mà đang tìm theo tên: giữ thứ tự theo độ liên quan do matching() đặt
+    public static Pageable page(UserSearchRequest request, Pageable pageable) {
+        if (pageable.getSort().isUnsorted() && !SearchSpecification.isAbsent(request.getFullName())) {
+            return pageable;
+        }
+        return SORTABLE.apply(pageable);
+    }
+
+    private static <T extends User> Specification<T> rankedByName(String term) {
+        return (root, query, cb) -> {
+            if (!isCountQuery(query)) {
+                Expression<String> name = foldedName(root, cb);
+                Expression<Integer> rank = cb.<Integer>selectCase()
+                        .when(cb.like(name, fold(cb, escaped(term) + "%"), '\\'), 0)
+                        .when(cb.like(name, fold(cb, "% " + escaped(term) + "%"), '\\'), 1)
+                        .otherwise(2);
+                query.orderBy(cb.asc(rank), cb.asc(root.get("lastName")), cb.asc(root.get("userId")));
+            }
+            return null;
+        };
+    }
+
+    private static Expression<String> foldedName(Root<? extends User> root, CriteriaBuilder cb) {
+        return SearchSpecification.fold(cb, root.get("fullName"));
+    }
+
+    private static Expression<String> fold(CriteriaBuilder cb, String pattern) {
+        return SearchSpecification.fold(cb, SearchSpecification.bind(cb, pattern));
+    }
+
+    private static String escaped(String term) {
+        return SearchSpecification.escapeLike(term);
+    }
+
+    private static boolean isCountQuery(CriteriaQuery<?> query) {
+        return Long.class.equals(query.getResultType()) || long.class.equals(query.getResultType());
+    }
+
+    private UserSpecification() {}
+}
@@ -0,0 +1,151 @@
+package vn.edu.actvn.server.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import vn.edu.actvn.server.dto.response.dashboard.AdminAnalyticsResponse;
+import vn.edu.actvn.server.entity.AnalyticsSnapshot;
+import vn.edu.actvn.server.event.AnalyticsChangedEvent;
+import vn.edu.actvn.server.repository.AnalyticsSnapshotRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Caches the year-scoped series of {@link AdminAnalyticsResponse} (finance and new students by month). Closed
+ * years are kept forever and persisted in {@code analytics_snapshot} so they survive restarts; the current year
+ * lives for a short TTL and is dropped as soon as an {@link AnalyticsChangedEvent} for it is committed. Counts
+ * that depend on the present state (students, classes, enrollment) are never persisted: the complete response,
+ * series plus counts, is kept in memory for {@code dashboard.analytics.live-ttl} by {@link #getLive}, for closed
+ * years too, and dropped on any {@link AnalyticsChangedEvent}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AnalyticsCacheService {
+    AnalyticsSnapshotRepository analyticsSnapshotRepository;
+    ObjectMapper objectMapper;
+
+    Map<Integer, CachedAnalytics> cache = new ConcurrentHashMap<>();
+    // Response đầy đủ (chuỗi theo năm + số liệu hiện tại) của từng năm
+    Map<Integer, CachedAnalytics> live = new ConcurrentHashMap<>();
+    // Tăng mỗi lần evict để kết quả đang tính dở (bắt đầu trước khi evict) không được ghi đè vào cache
+    AtomicLong generation = new AtomicLong();
+
+    @NonFinal
+    @Value("${dashboard.analytics.current-year-ttl:PT1M}")
+    Duration currentYearTtl;
+
+    // Sĩ số, ghi danh, lớp đang mở đổi theo mọi thao tác trên lớp/học sinh mà không phát sự kiện: chấp nhận trễ tối đa
+    // chừng này thay vì chạy lại các truy vấn đếm ở mỗi lần đọc
+    @NonFinal
+    @Value("${dashboard.analytics.live-ttl:PT30S}")
+    Duration liveTtl;
+
+    private record CachedAnalytics(AdminAnalyticsResponse response, long expiresAt) {
+        boolean isFresh() {
+            return expiresAt == Long.MAX_VALUE || System.nanoTime() - expiresAt < 0;
+        }
+    }
+
+    public AdminAnalyticsResponse get(int year, IntFunction<AdminAnalyticsResponse> loader) {
+        CachedAnalytics cached = cache.get(year);
+        if (cached != null && cached.isFresh()) return cached.response();
+
+        long startGeneration = generation.get();
+        boolean closed = isClosed(year);
+
+        if (closed) {
+            Optional<AdminAnalyticsResponse> persisted = readSnapshot(year);
+            if (persisted.isPresent()) {
+                store(year, persisted.get(), true, startGeneration);
+                return persisted.get();
+            }
+        }
+
+        AdminAnalyticsResponse response = loader.apply(year);
+        if (closed) writeSnapshot(year, response);
+        store(year, response, closed, startGeneration);
+        return response;
+    }
+
+    public AdminAnalyticsResponse getLive(int year, IntFunction<AdminAnalyticsResponse> loader) {
+        CachedAnalytics cached = live.get(year);
+        if (cached != null && cached.isFresh()) return cached.response();
+
+        long startGeneration = generation.get();
+        AdminAnalyticsResponse response = loader.apply(year);
+        if (generation.get() == startGeneration) {
+            live.put(year, new CachedAnalytics(response, System.nanoTime() + liveTtl.toNanos()));
+        }
+        return response;
+    }
+
+    // Số liệu hiện tại không gắn với năm nào nên bỏ bản đầy đủ của mọi năm
+    public void evict(int year) {
+        generation.incrementAndGet();
+        cache.remove(year);
+        live.clear();
+        if (isClosed(year) && analyticsSnapshotRepository.existsById(year)) {
+            // Chỉ xảy ra khi sửa dữ liệu lùi về năm cũ, snapshot sẽ được tính lại ở lần đọc sau
+            analyticsSnapshotRepository.deleteById(year);
+            log.info("Dropped persisted analytics snapshot of closed year {}", year);
+        }
+    }
+
+    // Chạy sau khi transaction ghi dữ liệu commit; cần transaction riêng để xoá snapshot
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onAnalyticsChanged(AnalyticsChangedEvent event) {
+        evict(event.year());
+    }
+
+    private boolean isClosed(int year) {
+        return year < LocalDate.now().getYear();
+    }
+
+    private void store(int year, AdminAnalyticsResponse response, boolean closed, long startGeneration) {
+        if (generation.get() != startGeneration) return;
+        long expiresAt = closed ? Long.MAX_VALUE : System.nanoTime() + currentYearTtl.toNanos();
+        cache.put(year, new CachedAnalytics(response, expiresAt));
+    }
+
+    private Optional<AdminAnalyticsResponse> readSnapshot(int year) {
+        return analyticsSnapshotRepository.findById(year).flatMap(snapshot -> {
+            try {
+                return Optional.of(objectMapper.readValue(snapshot.getPayload(), AdminAnalyticsResponse.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Ignoring unreadable analytics snapshot of year {}: {}", year, e.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    private void writeSnapshot(int year, AdminAnalyticsResponse response) {
+        try {
+            analyticsSnapshotRepository.save(AnalyticsSnapshot.builder()
+                    .year(year)
+                    .payload(objectMapper.writeValueAsString(response))
+                    .computedAt(LocalDateTime.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot persist analytics snapshot of year {}: {}", year, e.getMessage());
+        }
+    }
+}
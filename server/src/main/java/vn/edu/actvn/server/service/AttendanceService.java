@@ -2,24 +2,42 @@ package vn.edu.actvn.server.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.dto.request.attendance.AttendanceSearchRequest;
 import vn.edu.actvn.server.dto.request.attendance.AttendanceUpdateRequest;
-import vn.edu.actvn.server.dto.request.tuitionfee.CreateTuitionFeeRequest;
+import vn.edu.actvn.server.dto.request.attendance.StudentAttendanceRequest;
 import vn.edu.actvn.server.dto.response.attendance.AttendanceResponse;
 import vn.edu.actvn.server.entity.Attendance;
 import vn.edu.actvn.server.entity.EntityClass;
 import vn.edu.actvn.server.entity.StudentAttendance;
+import vn.edu.actvn.server.event.TuitionRecalculationEvent;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.AttendanceMapper;
 import vn.edu.actvn.server.repository.AttendanceRepository;
+import vn.edu.actvn.server.repository.StudentAttendanceRepository;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.utils.KeysetCursor;
+import vn.edu.actvn.server.repository.specification.AttendanceSpecification;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static lombok.AccessLevel.PRIVATE;
 
@@ -29,9 +47,10 @@ import static lombok.AccessLevel.PRIVATE;
 public class AttendanceService {
 
     AttendanceRepository attendanceRepository;
+    StudentAttendanceRepository studentAttendanceRepository;
     AttendanceMapper attendanceMapper;
     ClassService classService;
-    TuitionFeeService tuitionFeeService;
+    ApplicationEventPublisher eventPublisher;
 
     @PreAuthorize("hasAuthority('ATTENDANCE_CREATE') || hasRole('ADMIN')")
     public AttendanceResponse getAttendanceToday(String classId) {
@@ -52,15 +71,10 @@ public class AttendanceService {
                     Attendance newAttendance = Attendance.builder()
                             .entityClass(entityClass)
                             .date(today)
-                            .studentAttendances(entityClass.getStudents().stream()
-                                    .map(student -> {
-                                        StudentAttendance sa = new StudentAttendance();
-                                        sa.setStudentId(student.getUserId());
-                                        sa.setStatus(Attendance.Status.ABSENT);
-                                        return sa;
-                                    })
-                                    .toList())
+                            .studentAttendances(new ArrayList<>())
                             .build();
+                    entityClass.getStudents().forEach(student -> newAttendance.getStudentAttendances()
+                            .add(newRow(newAttendance, student.getUserId(), Attendance.Status.ABSENT, null)));
                     return attendanceRepository.save(newAttendance);
                 });
 
@@ -74,34 +88,70 @@ public class AttendanceService {
                 .orElseThrow();
     }
 
+    @Transactional
     @PreAuthorize("hasAuthority('ATTENDANCE_UPDATE') || hasRole('ADMIN')")
     public AttendanceResponse update(String id, AttendanceUpdateRequest request) {
         Attendance existing = attendanceRepository.findById(id).orElseThrow();
-        existing.setStudentAttendances(request.getStudentAttendances());
+        replaceStudentAttendances(existing, request.getStudentAttendances());
         Attendance saved = attendanceRepository.save(existing);
         return attendanceMapper.toAttendanceResponse(saved);
     }
 
+    @Transactional
     @PreAuthorize("hasAuthority('ATTENDANCE_UPDATE') || hasRole('ADMIN')")
     public AttendanceResponse partialUpdateAttendance(String id, AttendanceUpdateRequest request) {
         Attendance attendance = attendanceRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.ATTENDANCE_NOT_FOUND));
 
+        LocalDate previousDate = attendance.getDate();
         attendanceMapper.partiallyUpdateAttendance(attendance, request);
+        if (request.getStudentAttendances() != null) {
+            replaceStudentAttendances(attendance, request.getStudentAttendances());
+        }
         Attendance updated = attendanceRepository.save(attendance);
 
-        updated.getStudentAttendances().forEach(student -> {
-            CreateTuitionFeeRequest tuitionFeeRequest = CreateTuitionFeeRequest.builder()
-                    .studentId(student.getStudentId())
-                    .classId(attendance.getEntityClass().getClassId())
-                    .yearMonth(attendance.getDate())
-                    .build();
-            tuitionFeeService.createTuitionFee(tuitionFeeRequest);
-        });
+        // Học phí cả lớp trong tháng được tính lại ngoài request sau khi commit; đổi sang tháng khác thì tháng cũ cũng vậy
+        String classId = attendance.getEntityClass().getClassId();
+        eventPublisher.publishEvent(new TuitionRecalculationEvent(classId, updated.getDate()));
+        if (!YearMonth.from(previousDate).equals(YearMonth.from(updated.getDate()))) {
+            eventPublisher.publishEvent(new TuitionRecalculationEvent(classId, previousDate));
+        }
 
         return attendanceMapper.toAttendanceResponse(updated);
     }
 
+    // Chỉ đọc và ghi các dòng được nêu: mỗi học sinh đổi dữ liệu là một câu UPDATE, học sinh khác không bị đụng tới
+    @Transactional
+    @PreAuthorize("hasAuthority('ATTENDANCE_UPDATE') || hasRole('ADMIN')")
+    public AttendanceResponse patchStudentAttendances(String id, List<StudentAttendanceRequest> rows) {
+        Attendance attendance = attendanceRepository.findById(id)
+                .orElseThrow(() -> new AppException(ErrorCode.ATTENDANCE_NOT_FOUND));
+        Map<String, StudentAttendanceRequest> requested = byStudentId(rows);
+        if (requested.isEmpty()) {
+            return attendanceMapper.toAttendanceResponse(attendance);
+        }
+
+        List<StudentAttendance> targets = studentAttendanceRepository
+                .findByAttendance_AttendanceIdAndStudentIdIn(id, requested.keySet());
+        if (targets.size() != requested.size()) {
+            throw new AppException(ErrorCode.STUDENT_NOT_IN_ATTENDANCE);
+        }
+
+        boolean statusChanged = false;
+        for (StudentAttendance target : targets) {
+            Attendance.Status before = target.getStatus();
+            attendanceMapper.patchStudentAttendance(target, requested.get(target.getStudentId()));
+            statusChanged |= target.getStatus() != before;
+        }
+
+        // Học phí chỉ phụ thuộc số buổi có mặt; khoản của học sinh không đổi trạng thái được tính lại nhưng không bị ghi
+        if (statusChanged) {
+            eventPublisher.publishEvent(new TuitionRecalculationEvent(attendance.getEntityClass().getClassId(), attendance.getDate()));
+        }
+
+        return attendanceMapper.toAttendanceResponse(attendance);
+    }
+
     @PreAuthorize("hasAuthority('ATTENDANCE_UPDATE') || hasRole('ADMIN')")
     public void delete(String id) {
         Optional<Attendance> attendance = attendanceRepository.findById(id);
@@ -117,14 +167,52 @@ public class AttendanceService {
     }
 
     @PreAuthorize("hasAuthority('ATTENDANCE_READ') || hasRole('ADMIN')")
-    public Page<AttendanceResponse> getAll(String studentId,String classId, LocalDate date,Pageable pageable) {
-        if(studentId == null) {
-            studentId = "";
-        }
-        if(classId == null) {
-            classId = "";
-        }
-        return attendanceRepository.search(studentId,classId,date, pageable)
+    public Page<AttendanceResponse> getAll(AttendanceSearchRequest request, Pageable pageable) {
+        return attendanceRepository.search(request, pageable)
                 .map(attendanceMapper::toAttendanceResponse);
     }
+
+    @PreAuthorize("hasAuthority('ATTENDANCE_READ') || hasRole('ADMIN')")
+    public CursorPage<AttendanceResponse> scroll(AttendanceSearchRequest request, CursorRequest cursor, Sort sort) {
+        Sort order = AttendanceSpecification.SCROLLABLE.apply(sort);
+        ScrollPosition position = KeysetCursor.decode(cursor.getCursor(), order, Attendance.class);
+        return KeysetCursor.page(attendanceRepository.scroll(request, order, position, cursor.limit()),
+                order, attendanceMapper::toAttendanceResponse);
+    }
+
+    // Ghép theo studentId thay vì thay cả danh sách: dòng không đổi không sinh câu lệnh, chỉ dòng thêm/sửa/bỏ mới ghi xuống DB
+    private void replaceStudentAttendances(Attendance attendance, List<StudentAttendanceRequest> rows) {
+        Map<String, StudentAttendanceRequest> requested = byStudentId(rows);
+        Map<String, StudentAttendance> current = attendance.getStudentAttendances().stream()
+                .collect(Collectors.toMap(StudentAttendance::getStudentId, Function.identity()));
+
+        attendance.getStudentAttendances().removeIf(row -> !requested.containsKey(row.getStudentId()));
+        requested.forEach((studentId, row) -> {
+            StudentAttendance existing = current.get(studentId);
+            if (existing == null) {
+                attendance.getStudentAttendances().add(newRow(attendance, studentId, row.getStatus(), row.getNote()));
+            } else {
+                existing.setStatus(row.getStatus());
+                existing.setNote(row.getNote());
+            }
+        });
+    }
+
+    // Một học sinh xuất hiện nhiều lần trong request thì lấy dòng sau cùng
+    private static Map<String, StudentAttendanceRequest> byStudentId(List<StudentAttendanceRequest> rows) {
+        Map<String, StudentAttendanceRequest> byStudentId = new LinkedHashMap<>();
+        if (rows != null) {
+            rows.forEach(row -> byStudentId.put(row.getStudentId(), row));
+        }
+        return byStudentId;
+    }
+
+    private static StudentAttendance newRow(Attendance attendance, String studentId, Attendance.Status status, String note) {
+        return StudentAttendance.builder()
+                .attendance(attendance)
+                .studentId(studentId)
+                .status(status)
+                .note(note)
+                .build();
+    }
 }
@@ -7,13 +7,11 @@ import java.util.Date;
 import java.util.StringJoiner;
 import java.util.UUID;
 
+import jakarta.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.MACSigner;
@@ -26,6 +24,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
+import vn.edu.actvn.server.configuration.CachedAuthoritiesConverter;
+import vn.edu.actvn.server.constant.TokenPolicy;
 import vn.edu.actvn.server.dto.request.auth.AuthenticationRequest;
 import vn.edu.actvn.server.dto.request.auth.IntrospectRequest;
 import vn.edu.actvn.server.dto.request.auth.LogoutRequest;
@@ -38,6 +38,7 @@ import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.UserMapper;
 import vn.edu.actvn.server.repository.*;
+import vn.edu.actvn.server.utils.PermissionBitmask;
 
 @Service
 @RequiredArgsConstructor
@@ -45,11 +46,12 @@ import vn.edu.actvn.server.repository.*;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AuthenticationService {
     UserRepository userRepository;
-    InvalidatedTokenRepository invalidatedTokenRepository;
+    TokenRevocationIndex tokenRevocationIndex;
     UserMapper userMapper;
     TeacherRepository teacherRepository;
     StudentRepository studentRepository;
     ParentRepository parentRepository;
+    PasswordHashingService passwordHashingService;
 
     @NonFinal
     @Value("${jwt.signerKey}")
@@ -63,6 +65,24 @@ public class AuthenticationService {
     @Value("${jwt.refresh-exp}")
     protected long REFRESH_EXPIRATION;
 
+    // true: ghi role + bitmask quyền (role/perm/pv) thay cho chuỗi scope dài
+    @NonFinal
+    @Value("${jwt.compact-scope:false}")
+    protected boolean COMPACT_SCOPE;
+
+    // MACSigner / MACVerifier are immutable and thread-safe, build them once
+    @NonFinal
+    JWSSigner jwsSigner;
+
+    @NonFinal
+    JWSVerifier jwsVerifier;
+
+    @PostConstruct
+    void initJws() throws JOSEException {
+        jwsSigner = new MACSigner(SIGNER_KEY.getBytes());
+        jwsVerifier = new MACVerifier(SIGNER_KEY.getBytes());
+    }
+
     public IntrospectResponse introspect(IntrospectRequest request) throws JOSEException, ParseException {
         var token = request.getToken();
         boolean isValid = true;
@@ -77,7 +97,6 @@ public class AuthenticationService {
     }
 
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
-        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(10);
         User user = userRepository.findByUsername(request.getUsername())
                 .orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
         switch (user.getRole().getName()) {
@@ -97,7 +116,7 @@ public class AuthenticationService {
             }
             default -> throw new AppException(ErrorCode.USER_NOT_EXISTED);
         }
-        boolean authenticated = passwordEncoder.matches(request.getPassword(), user.getPassword());
+        boolean authenticated = passwordHashingService.matches(request.getPassword(), user.getPassword());
 
         if (!authenticated)
             throw new AppException(ErrorCode.UNAUTHENTICATED);
@@ -130,7 +149,7 @@ public class AuthenticationService {
                     .type(type)
                     .build();
 
-            invalidatedTokenRepository.save(invalidatedToken);
+            tokenRevocationIndex.revoke(invalidatedToken);
         } catch (AppException e) {
             log.warn("{} token already expired or invalid", type);
         }
@@ -161,23 +180,33 @@ public class AuthenticationService {
     private String generateToken(User user, long validDuration) {
         JWSHeader header = new JWSHeader(JWSAlgorithm.HS512);
 
-        JWTClaimsSet jwtClaimsSet = new JWTClaimsSet.Builder()
+        JWTClaimsSet.Builder claimsBuilder = new JWTClaimsSet.Builder()
                 .subject(user.getUsername())
                 .issuer("actvn.edu.vn")
                 .issueTime(new Date())
                 .expirationTime(new Date(
                         Instant.now().plus(validDuration, ChronoUnit.SECONDS).toEpochMilli()))
                 .jwtID(UUID.randomUUID().toString())
-                .claim("scope", buildScope(user))
-                .claim("type", "access")
-                .build();
+                .claim("type", "access");
+
+        if (COMPACT_SCOPE && user.getRole() != null) {
+            claimsBuilder
+                    .claim(CachedAuthoritiesConverter.ROLE_CLAIM, user.getRole().getName())
+                    .claim(CachedAuthoritiesConverter.PERMISSION_CLAIM,
+                            PermissionBitmask.encode(user.getRole().getPermissions()))
+                    .claim(CachedAuthoritiesConverter.PERMISSION_VERSION_CLAIM, PermissionBitmask.VERSION);
+        } else {
+            claimsBuilder.claim(CachedAuthoritiesConverter.SCOPE_CLAIM, buildScope(user));
+        }
+
+        JWTClaimsSet jwtClaimsSet = claimsBuilder.build();
 
         Payload payload = new Payload(jwtClaimsSet.toJSONObject());
 
         JWSObject jwsObject = new JWSObject(header, payload);
 
         try {
-            jwsObject.sign(new MACSigner(SIGNER_KEY.getBytes()));
+            jwsObject.sign(jwsSigner);
             return jwsObject.serialize();
         } catch (JOSEException e) {
             log.error("Cannot create token", e);
@@ -202,7 +231,7 @@ public class AuthenticationService {
         JWSObject jwsObject = new JWSObject(header, payload);
 
         try {
-            jwsObject.sign(new MACSigner(SIGNER_KEY.getBytes()));
+            jwsObject.sign(jwsSigner);
             return jwsObject.serialize();
         } catch (JOSEException e) {
             log.error("Cannot create refresh token", e);
@@ -211,22 +240,31 @@ public class AuthenticationService {
     }
 
     private SignedJWT verifyToken(String token) throws JOSEException, ParseException {
-        JWSVerifier verifier = new MACVerifier(SIGNER_KEY.getBytes());
-
         SignedJWT signedJWT = SignedJWT.parse(token);
 
-        Date expiryTime = signedJWT.getJWTClaimsSet().getExpirationTime();
+        verifySignature(signedJWT);
+        verifyNotRevoked(signedJWT.getJWTClaimsSet());
 
-        var verified = signedJWT.verify(verifier);
+        return signedJWT;
+    }
 
-        if (!(verified && expiryTime.after(new Date())))
+    public void verifySignature(SignedJWT signedJWT) throws JOSEException, ParseException {
+        // MACVerifier chấp nhận mọi thuật toán HMAC, chỉ nhận đúng thuật toán dùng để ký
+        if (!JWSAlgorithm.HS512.equals(signedJWT.getHeader().getAlgorithm()))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
 
-        if (invalidatedTokenRepository
-                .existsById(signedJWT.getJWTClaimsSet().getJWTID()))
+        Date expiryTime = signedJWT.getJWTClaimsSet().getExpirationTime();
+
+        var verified = signedJWT.verify(jwsVerifier);
+
+        if (!(verified && expiryTime != null
+                && expiryTime.toInstant().plus(TokenPolicy.CLOCK_SKEW).isAfter(Instant.now())))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
+    }
 
-        return signedJWT;
+    public void verifyNotRevoked(JWTClaimsSet claimsSet) {
+        if (tokenRevocationIndex.isRevoked(claimsSet.getJWTID()))
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
     }
 
     private String buildScope(User user) {
@@ -245,25 +283,9 @@ public class AuthenticationService {
         return stringJoiner.toString();
     }
 
-    @Transactional
-    @Scheduled(cron = "0 0 0 * * *")
     public int clearTokenDatabase() {
         log.warn("Clearing expired tokens...");
-
-        Instant now = Instant.now();
-        java.sql.Date accessThreshold = new java.sql.Date(now.minusSeconds(ACCESS_EXPIRATION).toEpochMilli());
-        java.sql.Date refreshThreshold = new java.sql.Date(now.minusSeconds(REFRESH_EXPIRATION).toEpochMilli());
-
-        // Xoá access token hết hạn
-        int accessDeleted = invalidatedTokenRepository
-                .deleteByTypeAndExpiryTimeBefore("access", accessThreshold);
-
-        // Xoá refresh token hết hạn
-        int refreshDeleted = invalidatedTokenRepository
-                .deleteByTypeAndExpiryTimeBefore("refresh", refreshThreshold);
-
-        log.warn("Deleted {} expired access tokens and {} expired refresh tokens", accessDeleted, refreshDeleted);
-        return accessDeleted + refreshDeleted;
+        return tokenRevocationIndex.purgeExpired();
     }
 
 }
@@ -3,19 +3,29 @@ package vn.edu.actvn.server.service;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.edu.actvn.server.configuration.SecondLevelCacheInvalidator;
 import vn.edu.actvn.server.dto.request.entityclass.ClassUpdateRequest;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
 import vn.edu.actvn.server.dto.request.entityclass.CreateClassRequest;
 import vn.edu.actvn.server.dto.response.entityclass.ClassResponse;
 import vn.edu.actvn.server.entity.*;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.ClassMapper;
@@ -23,10 +33,25 @@ import vn.edu.actvn.server.repository.ClassRepository;
 import vn.edu.actvn.server.repository.StudentRepository;
 import vn.edu.actvn.server.repository.TeacherRepository;
 import vn.edu.actvn.server.repository.UserRepository;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.utils.KeysetCursor;
+import vn.edu.actvn.server.repository.specification.ClassSpecification;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.dto.response.entityclass.ClassListItem;
+import vn.edu.actvn.server.repository.ProjectionQueries;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.time.DayOfWeek;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -35,24 +60,45 @@ import java.util.List;
 public class ClassService {
 
     ClassRepository classRepository;
+    ProjectionQueries projectionQueries;
     TeacherRepository teacherRepository;
     StudentRepository studentRepository;
     ClassMapper classMapper;
+    ApplicationEventPublisher eventPublisher;
+    TransactionTemplate transactionTemplate;
+    SecondLevelCacheInvalidator cacheInvalidator;
+
+    @NonFinal
+    @Value("${class.status-job.chunk-size:500}")
+    int statusChunkSize;
 
     public EntityClass getById(String id) {
         return classRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.CLASS_NOT_EXISTED));
     }
 
-    public Page<ClassResponse> getClasses(String studentId,String teacherId,
-                                          String className,Integer grade,
-                                          EntityClass.Status status,Pageable pageable) {
-        if(studentId == null) studentId ="";
-        if(teacherId == null) teacherId = "";
-        if(className == null) className = "";
-        if(grade == null) grade = 0;
-        return classRepository.search(studentId, teacherId, className, grade,status , pageable)
-                .map(classMapper::toClassResponse);
+    public Page<ClassResponse> getClasses(ClassSearchRequest request, Pageable pageable) {
+        Page<ClassResponse> classes = projectionQueries.findPage(EntityClass.class,
+                        ClassSpecification.matching(request), ClassSpecification.SORTABLE.apply(pageable),
+                        ClassListItem.class, ClassSpecification.listColumns())
+                .map(classMapper::fromListItem);
+        if (classes.isEmpty()) return classes;
+
+        List<String> classIds = classes.map(ClassResponse::getClassId).getContent();
+        Map<String, List<String>> studentIds = KeyedValue.group(classRepository.findStudentIds(classIds));
+        Map<String, List<DayOfWeek>> daysOfWeek = KeyedValue.group(classRepository.findDaysOfWeek(classIds));
+        classes.forEach(entityClass -> {
+            entityClass.setStudentIds(studentIds.getOrDefault(entityClass.getClassId(), List.of()));
+            entityClass.setDaysOfWeek(daysOfWeek.getOrDefault(entityClass.getClassId(), List.of()));
+        });
+        return classes;
+    }
+
+    public CursorPage<ClassResponse> scrollClasses(ClassSearchRequest request, CursorRequest cursor, Sort sort) {
+        Sort order = ClassSpecification.SCROLLABLE.apply(sort);
+        ScrollPosition position = KeysetCursor.decode(cursor.getCursor(), order, EntityClass.class);
+        return KeysetCursor.page(classRepository.scroll(request, order, position, cursor.limit()),
+                order, classMapper::toClassResponse);
     }
 
     @PreAuthorize("hasAuthority('CLASS_CREATE') || hasRole('ADMIN')")
@@ -63,7 +109,9 @@ public class ClassService {
         entityClass.setTeacher(teacher);
         entityClass.setStudents(new ArrayList<>());
 
-        return classMapper.toClassResponse(classRepository.save(entityClass));
+        EntityClass saved = classRepository.save(entityClass);
+        eventPublisher.publishEvent(SearchIndexChangedEvent.entityClass(saved.getClassId()));
+        return classMapper.toClassResponse(saved);
     }
 
     @PreAuthorize("hasAuthority('CLASS_UPDATE') || hasRole('ADMIN')")
@@ -80,7 +128,9 @@ public class ClassService {
         entityClass.setStudents(new ArrayList<>());
 
         classMapper.patchEntityClass(classUpdateRequest, entityClass);
-        return classMapper.toClassResponse(classRepository.save(entityClass));
+        EntityClass saved = classRepository.save(entityClass);
+        eventPublisher.publishEvent(SearchIndexChangedEvent.entityClass(classId));
+        return classMapper.toClassResponse(saved);
     }
 
     @PreAuthorize("hasAuthority('CLASS_READ') || hasRole('ADMIN')")
@@ -89,6 +139,7 @@ public class ClassService {
                 .orElseThrow(() -> new AppException(ErrorCode.CLASS_NOT_EXISTED)));
     }
 
+    @Transactional
     @PreAuthorize("hasAuthority('CLASS_DELETE') || hasRole('ADMIN')")
     public void closeClass(String classId) {
         EntityClass entityClass = classRepository.findById(classId)
@@ -96,9 +147,7 @@ public class ClassService {
         if (entityClass.getStatus() == EntityClass.Status.CLOSED) {
             throw new AppException(ErrorCode.CLASS_ALREADY_CLOSED);
         }
-        entityClass.getStudents().forEach(student -> {
-            student.getClassDiscounts().removeIf(cd -> cd.getClassId().equals(entityClass.getClassId()));
-        });
+        studentRepository.deleteClassDiscounts(List.of(classId));
         entityClass.setStatus(EntityClass.Status.CLOSED);
         classRepository.save(entityClass);
     }
@@ -162,31 +211,70 @@ public class ClassService {
         return classMapper.toClassResponse(classRepository.save(entityClass));
     }
 
-    @Transactional
-    @Scheduled(cron = "0 0 0 * * *") // Chạy mỗi ngày lúc 00:00
+    // Mỗi lô một transaction ngắn với vài câu lệnh UPDATE/DELETE hàng loạt, không nạp entity nào vào bộ nhớ
+    @Scheduled(cron = "${class.status-job.cron:0 0 0 * * *}") // Mặc định chạy mỗi ngày lúc 00:00
     protected void checkStatus() {
         log.info("Bắt đầu kiểm tra trạng thái lớp học");
+        long start = System.currentTimeMillis();
         LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalTime time = now.toLocalTime();
+        Limit chunk = Limit.of(statusChunkSize);
 
         // Cập nhật từ UPCOMING → OPEN (nếu đến giờ học)
-        List<EntityClass> upcomingClasses = classRepository.findByStatus(EntityClass.Status.UPCOMING);
-        for (EntityClass entityClass : upcomingClasses) {
-            LocalDateTime classStart = entityClass.getStartDate().atTime(entityClass.getStartTime());
-            if (!now.isBefore(classStart)) {
-                entityClass.setStatus(EntityClass.Status.OPEN);
-                classRepository.save(entityClass);
-                log.info("Class {} chuyển từ UPCOMING → OPEN", entityClass.getClassId());
-            }
+        BulkStep opened = new BulkStep("UPCOMING → OPEN");
+        runInChunks(() -> classRepository.findIdsStartedBy(EntityClass.Status.UPCOMING, today, time, chunk),
+                ids -> opened.run(() -> classRepository.updateStatus(
+                        ids, EntityClass.Status.UPCOMING, EntityClass.Status.OPEN, now)));
+
+        // Cập nhật từ OPEN → CLOSED (nếu quá giờ kết thúc) và bỏ ưu đãi của các lớp vừa đóng
+        BulkStep closed = new BulkStep("OPEN → CLOSED");
+        BulkStep discounts = new BulkStep("student_class_discounts deleted");
+        runInChunks(() -> classRepository.findIdsEndedBefore(EntityClass.Status.OPEN, today, time, chunk),
+                ids -> {
+                    closed.run(() -> classRepository.updateStatus(
+                            ids, EntityClass.Status.OPEN, EntityClass.Status.CLOSED, now));
+                    discounts.run(() -> studentRepository.deleteClosedClassDiscounts(ids));
+                });
+
+        opened.log();
+        closed.log();
+        discounts.log();
+        log.info("Kiểm tra trạng thái lớp học xong trong {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void runInChunks(Supplier<List<String>> nextIds, Consumer<List<String>> apply) {
+        while (true) {
+            Boolean more = transactionTemplate.execute(status -> {
+                List<String> ids = nextIds.get();
+                if (ids.isEmpty()) return false;
+                apply.accept(ids);
+                // Bulk update bỏ qua entity nên các node khác phải tự bỏ region class
+                cacheInvalidator.evictRegion(EntityClass.class);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(more)) return;
+        }
+    }
+
+    // Số dòng bị ảnh hưởng và thời gian cộng dồn qua các lô của một bước trong checkStatus
+    private static final class BulkStep {
+        final String name;
+        long rows;
+        long nanos;
+
+        BulkStep(String name) {
+            this.name = name;
+        }
+
+        void run(IntSupplier statement) {
+            long start = System.nanoTime();
+            rows += statement.getAsInt();
+            nanos += System.nanoTime() - start;
         }
 
-        // Cập nhật từ OPEN → CLOSED (nếu quá giờ kết thúc)
-        List<EntityClass> openClasses = classRepository.findByStatus(EntityClass.Status.OPEN);
-        for (EntityClass entityClass : openClasses) {
-            LocalDateTime classEnd = entityClass.getEndDate().atTime(entityClass.getEndTime());
-            if (now.isAfter(classEnd)) {
-                closeClass(entityClass.getClassId());
-                log.info("Class {} chuyển từ OPEN → CLOSED", entityClass.getClassId());
-            }
+        void log() {
+            log.info("checkStatus {}: {} rows in {} ms", name, rows, TimeUnit.NANOSECONDS.toMillis(nanos));
         }
     }
 
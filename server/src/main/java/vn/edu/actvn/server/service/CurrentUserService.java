@@ -0,0 +1,125 @@
+package vn.edu.actvn.server.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.dto.response.user.CurrentUser;
+import vn.edu.actvn.server.event.UserChangedEvent;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+import vn.edu.actvn.server.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Giải quyết user hiện tại tối đa một lần mỗi request (lưu trong request attribute),
+// phía sau là cache ngắn hạn theo username để phần lớn request không phải truy vấn DB.
+// Sửa/xoá người dùng (UserChangedEvent) bỏ entry đó trên node này sau khi commit và trên các node khác qua cluster
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CurrentUserService {
+    private static final String REQUEST_ATTRIBUTE = CurrentUserService.class.getName() + ".CURRENT_USER";
+    private static final int MAX_CACHED_USERS = 10_000;
+    static final String CHANNEL = "current_user_changed";
+
+    UserRepository userRepository;
+    ClusterNotifications clusterNotifications;
+
+    Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+
+    @NonFinal
+    @Value("${security.current-user.cache-ttl:PT30S}")
+    Duration cacheTtl;
+
+    @PostConstruct
+    void init() {
+        clusterNotifications.subscribe(CHANNEL, new ClusterNotifications.Subscriber() {
+            @Override
+            public void onMessage(String userId) {
+                evict(userId);
+            }
+
+            // Có thể đã lỡ thông báo trong lúc chưa nghe (hoặc mất kết nối)
+            @Override
+            public void onConnected(boolean reconnected) {
+                cache.clear();
+            }
+        });
+    }
+
+    public CurrentUser get() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof CurrentUser user) {
+            return user;
+        }
+
+        CurrentUser user = resolve(username());
+        if (attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    public String username() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+        return authentication.getName();
+    }
+
+    // Sau commit để request khác không kịp cache lại bản cũ; không readOnly vì pg_notify bị từ chối trong đó
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.userId());
+        try {
+            clusterNotifications.publish(CHANNEL, event.userId());
+        } catch (Exception e) {
+            // Các node khác vẫn hết hạn entry sau cacheTtl
+            log.warn("Cannot publish current user change {}: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    // Cache theo username nhưng sự kiện mang userId; sửa/xoá người dùng hiếm nên quét cả cache là đủ
+    void evict(String userId) {
+        cache.values().removeIf(entry -> entry.user().userId().equals(userId));
+    }
+
+    private CurrentUser resolve(String username) {
+        long now = System.nanoTime();
+        CachedUser cached = cache.get(username);
+        if (cached != null && cached.expiresAt() - now > 0) {
+            return cached.user();
+        }
+
+        CurrentUser user = userRepository.findCurrentUserByUsername(username)
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
+
+        if (cache.size() >= MAX_CACHED_USERS) {
+            cache.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+            if (cache.size() >= MAX_CACHED_USERS) cache.clear();
+        }
+        cache.put(username, new CachedUser(user, now + cacheTtl.toNanos()));
+        return user;
+    }
+
+    private record CachedUser(CurrentUser user, long expiresAt) {}
+}
@@ -1,5 +1,6 @@
 package vn.edu.actvn.server.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -7,23 +8,32 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
 import vn.edu.actvn.server.dto.response.dashboard.AdminAnalyticsResponse;
 import vn.edu.actvn.server.dto.response.dashboard.AdminDashboardResponse;
 import vn.edu.actvn.server.dto.response.entityclass.ClassResponse;
+import vn.edu.actvn.server.dto.response.dashboard.GradeCount;
 import vn.edu.actvn.server.dto.response.dashboard.LevelDistributionDto;
+import vn.edu.actvn.server.dto.response.dashboard.MonthlyCount;
 import vn.edu.actvn.server.entity.EntityClass;
-import vn.edu.actvn.server.entity.TeacherPayment;
+import vn.edu.actvn.server.entity.MonthlyFinanceRollup;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.ClassMapper;
 import vn.edu.actvn.server.repository.*;
+import vn.edu.actvn.server.utils.SingleFlight;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,10 +44,16 @@ import java.util.stream.IntStream;
 public class DashboardService {
     TeacherRepository teacherRepository;
     StudentRepository studentRepository;
-    TuitionFeeRepository tuitionFeeRepository;
     ClassRepository classRepository;
     ClassService classService;
-    TeacherPaymentRepository teacherPaymentRepository;
+    FinanceRollupService financeRollupService;
+    ThreadPoolTaskExecutor dashboardExecutor;
+    MeterRegistry meterRegistry;
+    AnalyticsCacheService analyticsCacheService;
+
+    // Nhiều admin mở dashboard cùng lúc chỉ kích hoạt một lần tính cho mỗi tháng/năm
+    SingleFlight<LocalDate, AdminDashboardResponse> adminDashboardFlight = new SingleFlight<>();
+    SingleFlight<Integer, AdminAnalyticsResponse> analyticsFlight = new SingleFlight<>();
 
     public AdminDashboardResponse getAdminDashboard(Integer month, Integer year) {
 
@@ -48,111 +64,134 @@ public class DashboardService {
         if (year == null || year < 1900 || year > 2100) {
             throw new AppException(ErrorCode.INVALID_KEY);
         }
-        LocalDate date = LocalDate.of(year, month, 1);
-        // Assuming the repositories have methods to calculate the total tuition fees
-        BigDecimal totalPaid = tuitionFeeRepository.getTotalPaidAmountByMonth(date);
-        BigDecimal totalUnpaid = tuitionFeeRepository.getTotalUnpaidAmountByMonth(date);
+        return adminDashboardFlight.execute(LocalDate.of(year, month, 1), this::computeAdminDashboard);
+    }
 
-        List<ClassResponse> classesUpcoming = classService.getClasses("","","",0,
-                EntityClass.Status.UPCOMING,
+    private AdminDashboardResponse computeAdminDashboard(LocalDate month) {
+        MonthlyFinanceRollup finance = financeRollupService.getMonth(month);
+
+        List<ClassResponse> classesUpcoming = classService.getClasses(
+                ClassSearchRequest.builder().status(EntityClass.Status.UPCOMING).build(),
                 PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "startDate"))).getContent();
         return AdminDashboardResponse.builder()
                 .totalTeachers(teacherRepository.count())
                 .totalStudents(studentRepository.count())
-                .totalTuitionFeesOfMonth(totalPaid)
-                .totalTuitionFeesUnPaid(totalUnpaid)
+                .totalTuitionFeesOfMonth(finance.getTuitionPaid())
+                .totalTuitionFeesUnPaid(finance.getTuitionRemaining())
                 .classesUpcoming(classesUpcoming)
                 .build();
     }
 
-    public AdminAnalyticsResponse getAnalyticsDashboard() {
-        int year = LocalDate.now().getYear();
-
-        int studentCount = (int) studentRepository.count();
-        int classCount = (int) classRepository.count();
-        int teacherCount = (int) teacherRepository.count();
-        int studentsNoClass = studentRepository.countStudentsWithNoClassDiscounts().intValue();
+    public AdminAnalyticsResponse getAnalyticsDashboard(Integer year) {
+        if (year == null) {
+            year = LocalDate.now().getYear();
+        }
+        if (year < 1900 || year > 2100) {
+            throw new AppException(ErrorCode.INVALID_KEY);
+        }
+        // Cả phần đếm cũng chạy trong single-flight: admin mở dashboard cùng lúc chỉ tốn một lượt truy vấn
+        return analyticsFlight.execute(year, y -> analyticsCacheService.getLive(y,
+                live -> withLiveCounts(analyticsCacheService.get(live, this::computeYearSeries))));
+    }
 
-        int studentsWithClass = studentCount - studentsNoClass;
-        int retentionRate = studentCount > 0
-                ? (int) Math.round((studentsWithClass * 100.0) / studentCount)
-                : 0;
+    // Chỉ gồm các chuỗi số liệu gắn với năm, phần này được cache (và lưu lại với năm đã đóng)
+    private AdminAnalyticsResponse computeYearSeries(int year) {
+        LocalDate yearStart = LocalDate.of(year, 1, 1);
+        LocalDate nextYearStart = yearStart.plusYears(1);
 
-        // Tổng lương giáo viên và theo tháng
-        List<Integer> teacherSalaryByMonth = new ArrayList<>();
-        BigDecimal totalTeacherSalary = BigDecimal.ZERO;
-
-        // Doanh thu học phí
-        List<Integer> revenueByMonth = new ArrayList<>();
-
-        // Học sinh không có lớp và tạo mới theo tháng
-        List<Integer> studentsNoClassByMonth = new ArrayList<>();
-        List<Integer> studentsCreatedByMonth = new ArrayList<>();
-
-        for (int m = 1; m <= 12; m++) {
-            LocalDate date = LocalDate.of(year, m, 1);
-            LocalDate start = date;
-            LocalDate end = date.withDayOfMonth(date.lengthOfMonth());
-
-            // Revenue
-            BigDecimal paid = tuitionFeeRepository.getTotalPaidAmountByMonth(date);
-            revenueByMonth.add(paid != null ? paid.intValue() : 0);
-
-            // Teacher salary
-            Page<TeacherPayment> page = teacherPaymentRepository.search(
-                    "", m, year,
-                    PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "createdAt"))
-            );
-
-            // Lấy bản ghi đầu tiên (nếu có), rồi lấy paidAmount
-            BigDecimal paidAmount = page.getContent().stream()
-                    .findFirst()
-                    .map(TeacherPayment::getPaidAmount)
-                    .orElse(BigDecimal.ZERO);
-
-            teacherSalaryByMonth.add(paidAmount.intValue());
-            totalTeacherSalary = totalTeacherSalary.add(paidAmount);
-
-            // Student stats
-            studentsNoClassByMonth.add(
-                    studentRepository.countStudentsWithNoClassDiscountsByCreatedAtBetween(
-                            start.atStartOfDay(), end.atTime(23, 59, 59)).intValue()
-            );
-            studentsCreatedByMonth.add(
-                    studentRepository.countByCreatedAtBetween(
-                            start.atStartOfDay(), end.atTime(23, 59, 59)).intValue()
-            );
-        }
+        // Các truy vấn tổng hợp độc lập chạy song song, mỗi truy vấn trả về cả chuỗi 12 tháng
+        var finance = section("financeByMonth", () -> financeRollupService.getYear(year));
+        var studentsCreated = section("studentsCreatedByMonth", () -> toMonthlyCounts(
+                studentRepository.countCreatedGroupByMonth(yearStart.atStartOfDay(), nextYearStart.atStartOfDay())));
 
-        // Tính theo quý
-        List<Integer> revenueByQuarter = calcQuarterSums(revenueByMonth);
-        List<Integer> teacherSalaryByQuarter = calcQuarterSums(teacherSalaryByMonth);
+        CompletableFuture.allOf(finance, studentsCreated).join();
 
-        // Level distribution: từ khối 1 đến 5
-        List<LevelDistributionDto> levelDist = IntStream.rangeClosed(1, 5)
-                .mapToObj(grade -> new LevelDistributionDto(
-                        "Khối " + grade,
-                        classService.getClasses("", "", "", grade, EntityClass.Status.OPEN, PageRequest.of(0, 1)).getTotalElements()
-                )).collect(Collectors.toList());
+        List<MonthlyFinanceRollup> financeByMonth = finance.join();
+        BigDecimal totalTeacherSalary = financeByMonth.stream()
+                .map(MonthlyFinanceRollup::getTeacherPaid)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<Integer> teacherSalaryByMonth = financeByMonth.stream().map(m -> m.getTeacherPaid().intValue()).toList();
+        List<Integer> revenueByMonth = financeByMonth.stream().map(m -> m.getTuitionPaid().intValue()).toList();
 
         return AdminAnalyticsResponse.builder()
-                .studentCount(studentCount)
-                .classCount(classCount)
-                .teacherCount(teacherCount)
-                .retentionRate(retentionRate)
-                .studentsNoClass(studentsNoClass)
                 .totalTeacherSalary(totalTeacherSalary)
                 .currentYear(year)
                 .revenueByMonth(revenueByMonth)
-                .revenueByQuarter(revenueByQuarter)
+                .revenueByQuarter(calcQuarterSums(revenueByMonth))
                 .teacherSalaryByMonth(teacherSalaryByMonth)
-                .teacherSalaryByQuarter(teacherSalaryByQuarter)
-                .studentsNoClassByMonth(studentsNoClassByMonth)
-                .studentsCreatedByMonth(studentsCreatedByMonth)
+                .teacherSalaryByQuarter(calcQuarterSums(teacherSalaryByMonth))
+                .studentsCreatedByMonth(studentsCreated.join())
+                .build();
+    }
+
+    // Các số liệu phụ thuộc trạng thái hiện tại (sĩ số, ghi danh, lớp đang mở) không nằm trong snapshot của năm:
+    // tính lại mỗi khi bản đầy đủ trong AnalyticsCacheService.getLive hết hạn, kể cả với năm đã đóng
+    private AdminAnalyticsResponse withLiveCounts(AdminAnalyticsResponse series) {
+        LocalDate yearStart = LocalDate.of(series.getCurrentYear(), 1, 1);
+        LocalDate nextYearStart = yearStart.plusYears(1);
+
+        var studentCount = section("studentCount", studentRepository::count);
+        var classCount = section("classCount", classRepository::count);
+        var teacherCount = section("teacherCount", teacherRepository::count);
+        var studentsNoClass = section("studentsNoClass", studentRepository::countStudentsWithNoClassDiscounts);
+        var studentsNoClassCreated = section("studentsNoClassByMonth", () -> toMonthlyCounts(
+                studentRepository.countNoClassDiscountsCreatedGroupByMonth(yearStart.atStartOfDay(), nextYearStart.atStartOfDay())));
+        var levelCounts = section("levelDist", () -> classRepository.countByStatusGroupByGrade(EntityClass.Status.OPEN));
+
+        CompletableFuture.allOf(studentCount, classCount, teacherCount, studentsNoClass,
+                studentsNoClassCreated, levelCounts).join();
+
+        int students = studentCount.join().intValue();
+        int studentsWithClass = students - studentsNoClass.join().intValue();
+        int retentionRate = students > 0
+                ? (int) Math.round((studentsWithClass * 100.0) / students)
+                : 0;
+
+        // Level distribution: từ khối 1 đến 5
+        Map<Integer, Long> classesByGrade = levelCounts.join().stream()
+                .collect(Collectors.toMap(GradeCount::getGrade, GradeCount::getCount));
+        List<LevelDistributionDto> levelDist = IntStream.rangeClosed(1, 5)
+                .mapToObj(grade -> new LevelDistributionDto("Khối " + grade, classesByGrade.getOrDefault(grade, 0L)))
+                .collect(Collectors.toList());
+
+        // Bản cache dùng chung giữa các request, luôn trả về bản sao
+        return series.toBuilder()
+                .studentCount(students)
+                .classCount(classCount.join().intValue())
+                .teacherCount(teacherCount.join().intValue())
+                .retentionRate(retentionRate)
+                .studentsNoClass(studentsNoClass.join().intValue())
+                .studentsNoClassByMonth(studentsNoClassCreated.join())
                 .levelDist(levelDist)
                 .build();
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    public int rebuildFinanceRollup() {
+        return financeRollupService.rebuild();
+    }
+
+    private <T> CompletableFuture<T> section(String name, Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return supplier.get();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                meterRegistry.timer("dashboard.analytics.section", "section", name)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+                log.debug("Analytics section {} took {} ms", name, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }, dashboardExecutor);
+    }
+
+    private List<Integer> toMonthlyCounts(List<MonthlyCount> rows) {
+        Integer[] series = new Integer[12];
+        Arrays.fill(series, 0);
+        rows.forEach(row -> series[row.getMonthOfYear() - 1] = row.getCount().intValue());
+        return List.of(series);
+    }
+
     private List<Integer> calcQuarterSums(List<Integer> monthlyList) {
         return List.of(
                 monthlyList.subList(0, 3).stream().mapToInt(i -> i).sum(),
@@ -15,8 +15,10 @@ import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import vn.edu.actvn.server.dto.request.tuitionfee.TuitionFeeSearchRequest;
 import vn.edu.actvn.server.dto.request.email.CreateOtp;
 import vn.edu.actvn.server.dto.request.email.EmailRequest;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
 import vn.edu.actvn.server.entity.*;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
@@ -24,6 +26,7 @@ import vn.edu.actvn.server.repository.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Random;
 
@@ -157,7 +160,10 @@ public class EmailService {
                 var student = studentOpt.get();
 
                 // Tìm lớp của học sinh
-                var classes = classRepository.search(studentId, "", "", 0, EntityClass.Status.OPEN, PageRequest.of(0, 1000));
+                var classes = classRepository.search(ClassSearchRequest.builder()
+                        .studentId(studentId)
+                        .status(EntityClass.Status.OPEN)
+                        .build(), PageRequest.of(0, 1000));
                 var classList = classes.getContent();
                 int numClasses = classList.size();
                 if (numClasses == 0) continue;
@@ -175,7 +181,11 @@ public class EmailService {
                     }
 
                     // Thống kê học phí
-                    List<TuitionFee> fees = tuitionFeeRepository.search(studentId, classId, LocalDate.of(2025, 6, 1), PageRequest.of(0, 12)).getContent();
+                    List<TuitionFee> fees = tuitionFeeRepository.search(TuitionFeeSearchRequest.builder()
+                            .studentId(studentId)
+                            .classId(classId)
+                            .yearMonth(YearMonth.of(2025, 6))
+                            .build(), PageRequest.of(0, 12)).getContent();
                     BigDecimal paid = BigDecimal.ZERO;
                     BigDecimal debt = BigDecimal.ZERO;
                     for (var fee : fees) {
@@ -0,0 +1,165 @@
+package vn.edu.actvn.server.service;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.entity.MonthlyFinanceRollup;
+import vn.edu.actvn.server.entity.TuitionFee;
+import vn.edu.actvn.server.event.AnalyticsChangedEvent;
+import vn.edu.actvn.server.repository.MonthlyFinanceRollupRepository;
+import vn.edu.actvn.server.repository.TeacherPaymentRepository;
+import vn.edu.actvn.server.repository.TuitionFeeRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Giữ bảng monthly_finance_rollup khớp với tuition_fees và teacher_payment bằng cách cộng dồn chênh lệch
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class FinanceRollupService {
+    MonthlyFinanceRollupRepository rollupRepository;
+    TuitionFeeRepository tuitionFeeRepository;
+    TeacherPaymentRepository teacherPaymentRepository;
+    ApplicationEventPublisher eventPublisher;
+
+    // Giá trị của một khoản học phí trước khi sửa, dùng để tính chênh lệch
+    public record TuitionFeeTotals(LocalDate month, BigDecimal amount, BigDecimal paid, BigDecimal remaining) {
+        public static TuitionFeeTotals of(TuitionFee tuitionFee) {
+            if (tuitionFee == null || tuitionFee.getYearMonth() == null) return null;
+            return new TuitionFeeTotals(tuitionFee.getYearMonth().withDayOfMonth(1),
+                    orZero(tuitionFee.getAmount()),
+                    orZero(tuitionFee.getPaidAmount()),
+                    orZero(tuitionFee.getRemainingAmount()));
+        }
+
+        TuitionFeeTotals plus(TuitionFeeTotals other) {
+            return new TuitionFeeTotals(month, amount.add(other.amount), paid.add(other.paid), remaining.add(other.remaining));
+        }
+
+        TuitionFeeTotals negate() {
+            return new TuitionFeeTotals(month, amount.negate(), paid.negate(), remaining.negate());
+        }
+    }
+
+    // before = null khi tạo mới, after = null khi xoá
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tuitionFeeChanged(TuitionFeeTotals before, TuitionFee after) {
+        tuitionTotalsChanged(before, TuitionFeeTotals.of(after));
+    }
+
+    // Như tuitionFeeChanged khi chỉ có số tiền trước/sau (upsert native không trả về entity)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tuitionTotalsChanged(TuitionFeeTotals before, TuitionFeeTotals current) {
+        if (before != null && current != null && before.month().equals(current.month())) {
+            addTuition(current.month(),
+                    current.amount().subtract(before.amount()),
+                    current.paid().subtract(before.paid()),
+                    current.remaining().subtract(before.remaining()));
+            return;
+        }
+        if (before != null) {
+            addTuition(before.month(), before.amount().negate(), before.paid().negate(), before.remaining().negate());
+        }
+        if (current != null) {
+            addTuition(current.month(), current.amount(), current.paid(), current.remaining());
+        }
+    }
+
+    // Nhiều khoản học phí đổi cùng lúc (tính lại cả lớp): cộng chênh lệch theo tháng rồi ghi mỗi tháng một lần
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tuitionFeesChanged(Collection<TuitionFeeTotals> before, Collection<TuitionFeeTotals> after) {
+        Map<LocalDate, TuitionFeeTotals> deltas = new HashMap<>();
+        before.stream().filter(Objects::nonNull)
+                .forEach(totals -> deltas.merge(totals.month(), totals.negate(), TuitionFeeTotals::plus));
+        after.stream().filter(Objects::nonNull)
+                .forEach(totals -> deltas.merge(totals.month(), totals, TuitionFeeTotals::plus));
+        deltas.values().forEach(delta -> addTuition(delta.month(), delta.amount(), delta.paid(), delta.remaining()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void teacherPaid(int year, int month, BigDecimal paidDelta) {
+        if (isZero(paidDelta)) return;
+        rollupRepository.addDelta(LocalDate.of(year, month, 1),
+                BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, paidDelta);
+        eventPublisher.publishEvent(new AnalyticsChangedEvent(year));
+    }
+
+    public MonthlyFinanceRollup getMonth(LocalDate month) {
+        LocalDate periodMonth = month.withDayOfMonth(1);
+        return rollupRepository.findById(periodMonth).orElseGet(() -> empty(periodMonth));
+    }
+
+    // 12 phần tử theo thứ tự tháng, tháng chưa có dữ liệu trả về giá trị 0
+    public List<MonthlyFinanceRollup> getYear(int year) {
+        LocalDate start = LocalDate.of(year, 1, 1);
+        MonthlyFinanceRollup[] months = new MonthlyFinanceRollup[12];
+        rollupRepository.findByPeriodMonthGreaterThanEqualAndPeriodMonthLessThan(start, start.plusYears(1))
+                .forEach(row -> months[row.getPeriodMonth().getMonthValue() - 1] = row);
+        for (int i = 0; i < months.length; i++) {
+            if (months[i] == null) months[i] = empty(start.withMonth(i + 1));
+        }
+        return List.of(months);
+    }
+
+    // Dựng lại toàn bộ bảng từ dữ liệu gốc, dùng khi backfill hoặc nghi ngờ lệch số
+    @Transactional
+    public int rebuild() {
+        rollupRepository.lockForRebuild();
+        rollupRepository.deleteAllRows();
+        int tuitionMonths = rollupRepository.insertTuitionTotals();
+        int teacherMonths = rollupRepository.upsertTeacherPaymentTotals();
+        log.info("Rebuilt monthly finance rollup: {} tuition months, {} teacher payment months",
+                tuitionMonths, teacherMonths);
+
+        List<MonthlyFinanceRollup> rows = rollupRepository.findAll();
+        rows.stream()
+                .map(row -> row.getPeriodMonth().getYear())
+                .distinct()
+                .forEach(year -> eventPublisher.publishEvent(new AnalyticsChangedEvent(year)));
+        return rows.size();
+    }
+
+    // Lần triển khai đầu tiên: bảng rỗng nhưng đã có dữ liệu tài chính
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (rollupRepository.count() > 0) return;
+        if (tuitionFeeRepository.count() == 0 && teacherPaymentRepository.count() == 0) return;
+        rebuild();
+    }
+
+    private void addTuition(LocalDate month, BigDecimal amount, BigDecimal paid, BigDecimal remaining) {
+        if (isZero(amount) && isZero(paid) && isZero(remaining)) return;
+        rollupRepository.addDelta(month, amount, paid, remaining, BigDecimal.ZERO);
+        eventPublisher.publishEvent(new AnalyticsChangedEvent(month.getYear()));
+    }
+
+    private static MonthlyFinanceRollup empty(LocalDate periodMonth) {
+        return MonthlyFinanceRollup.builder()
+                .periodMonth(periodMonth)
+                .tuitionAmount(BigDecimal.ZERO)
+                .tuitionPaid(BigDecimal.ZERO)
+                .tuitionRemaining(BigDecimal.ZERO)
+                .teacherPaid(BigDecimal.ZERO)
+                .build();
+    }
+
+    private static boolean isZero(BigDecimal value) {
+        return value == null || value.signum() == 0;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return Objects.requireNonNullElse(value, BigDecimal.ZERO);
+    }
+}
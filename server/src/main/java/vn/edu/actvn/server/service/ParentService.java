@@ -4,18 +4,22 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.request.user.CreateParentRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateParentRequest;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.entity.Parent;
 import vn.edu.actvn.server.entity.Role;
 import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
+import vn.edu.actvn.server.event.UserChangedEvent;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.UserMapper;
@@ -24,8 +28,13 @@ import vn.edu.actvn.server.repository.RoleRepository;
 import vn.edu.actvn.server.repository.StudentRepository;
 import vn.edu.actvn.server.repository.UserRepository;
 import vn.edu.actvn.server.utils.RandomAvatar;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.dto.response.user.UserListItem;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -33,18 +42,36 @@ import java.util.List;
 @Slf4j
 public class ParentService {
     ParentRepository parentRepository;
+    ProjectionQueries projectionQueries;
     UserMapper userMapper;
     UserRepository userRepository;
     RoleRepository roleRepository;
     StudentRepository studentRepository;
+    ApplicationEventPublisher eventPublisher;
     PasswordEncoder passwordEncoder;
 
+    static final int MAX_SUGGESTIONS = 20;
+
     @PreAuthorize("hasAuthority('PARENT_READ_ALL') || hasRole('ADMIN')")
-    public Page<UserResponse> getAllParents(String fullName,String email, Pageable pageable) {
-        if (fullName == null) fullName = "";
-        if (email == null)  email = "";
-        return parentRepository.search(fullName, email,pageable)
-                .map(userMapper::toParentResponse);
+    public Page<UserResponse> getAllParents(UserSearchRequest request, Pageable pageable) {
+        Page<UserResponse> parents = projectionQueries.findPage(Parent.class,
+                        UserSpecification.matching(request), UserSpecification.page(request, pageable),
+                        UserListItem.class, UserSpecification.<Parent>listColumns(null, null))
+                .map(userMapper::fromListItem);
+        if (parents.isEmpty()) return parents;
+
+        Map<String, List<String>> studentIds = KeyedValue.group(
+                parentRepository.findStudentIds(parents.map(UserResponse::getUserId).getContent()));
+        parents.forEach(parent -> parent.setStudentIds(studentIds.getOrDefault(parent.getUserId(), List.of())));
+        return parents;
+    }
+
+    @PreAuthorize("hasAuthority('PARENT_READ_ALL') || hasRole('ADMIN')")
+    public List<UserResponse> autocompleteParents(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) return List.of();
+        return parentRepository.autocomplete(prefix, Math.clamp(limit, 1, MAX_SUGGESTIONS)).stream()
+                .map(userMapper::toParentResponse)
+                .toList();
     }
 
     @PreAuthorize("hasAuthority('PARENT_READ') || hasRole('ADMIN')")
@@ -60,7 +87,10 @@ public class ParentService {
         Parent parent = parentRepository.findById(parentId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
         userMapper.patchParent(parent, request);
-        return userMapper.toParentResponse(parentRepository.save(parent));
+        Parent saved = parentRepository.save(parent);
+        eventPublisher.publishEvent(new UserChangedEvent(parentId));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(parentId));
+        return userMapper.toParentResponse(saved);
     }
 
     @PreAuthorize("hasAuthority('PARENT_CREATE') || hasRole('ADMIN')")
@@ -78,7 +108,9 @@ public class ParentService {
         parent.setRole(role);
 
         parent.setAvatarUrl(RandomAvatar.getRandomAvatar(parent.getGender().equals("MALE")));
-        return userMapper.toUserResponse(userRepository.save(parent));
+        UserResponse response = userMapper.toUserResponse(userRepository.save(parent));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(parent.getUserId()));
+        return response;
     }
 
     @PreAuthorize("hasAuthority('PARENT_UPDATE') || hasRole('ADMIN')")
@@ -128,5 +160,7 @@ public class ParentService {
     @PreAuthorize("hasAuthority('PARENT_DELETE') || hasRole('ADMIN')")
     public void deleteParent(String id) {
         parentRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(id));
     }
 }
@@ -4,8 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.dto.request.payment.PaymentSearchRequest;
 import vn.edu.actvn.server.dto.request.payment.CreatePaymentRequest;
 import vn.edu.actvn.server.dto.response.payment.PaymentResponse;
 import vn.edu.actvn.server.entity.*;
@@ -15,6 +19,10 @@ import vn.edu.actvn.server.mapper.PaymentMapper;
 import vn.edu.actvn.server.repository.PaymentRepository;
 import vn.edu.actvn.server.repository.TuitionFeeRepository;
 import vn.edu.actvn.server.utils.BigDecimalUtils;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.utils.KeysetCursor;
+import vn.edu.actvn.server.repository.specification.PaymentSpecification;
 
 import java.math.BigDecimal;
 
@@ -24,42 +32,55 @@ import static lombok.AccessLevel.PRIVATE;
 @RequiredArgsConstructor
 @FieldDefaults(level = PRIVATE, makeFinal = true)
 public class PaymentService {
-
     PaymentRepository paymentRepository;
     TuitionFeeRepository tuitionFeeRepository;
     PaymentMapper paymentMapper;
+    FinanceRollupService financeRollupService;
+    TuitionRecalculationQueue tuitionRecalculationQueue;
 
     @PreAuthorize("hasAuthority('PAYMENT_CREATE') || hasRole('ADMIN')")
+    @Transactional
     public PaymentResponse createPayment(CreatePaymentRequest request) {
         TuitionFee tuitionFee = tuitionFeeRepository.findById(request.getTuitionFeeId())
                 .orElseThrow(() -> new AppException(ErrorCode.TUITION_FEE_NOT_EXISTED));
+        // Điểm danh vừa sửa thì học phí tháng này chưa tính lại xong: trả 503 kèm Retry-After ngay thay vì giữ
+        // request (và connection) chờ worker, để không trừ vào số còn nợ cũ
+        if (tuitionFee.getEntityClass() != null
+                && tuitionRecalculationQueue.isPending(tuitionFee.getEntityClass().getClassId(), tuitionFee.getYearMonth())) {
+            throw new AppException(ErrorCode.TUITION_FEE_RECALCULATING);
+        }
+        var before = FinanceRollupService.TuitionFeeTotals.of(tuitionFee);
         Payment payment = paymentMapper.toPayment(request);
         payment.setTuitionFee(tuitionFee);
         if(BigDecimalUtils.isLessThanOrEqual(payment.getPaidAmount(), BigDecimal.ZERO) ) {
             throw new AppException(ErrorCode.PAYMENT_AMOUNT_INVALID);
         } else if (BigDecimalUtils.isGreaterThanOrEqual(payment.getPaidAmount(), tuitionFee.getRemainingAmount())) {
             tuitionFee.setRemainingAmount(BigDecimal.ZERO);
-            tuitionFee.setPaidAmount(tuitionFee.getAmount());
+            // Khoản đã đóng thừa (học phí tính lại thấp hơn) giữ nguyên số đã đóng
+            tuitionFee.setPaidAmount(tuitionFee.getAmount().max(tuitionFee.getPaidAmount()));
         } else {
             tuitionFee.setRemainingAmount(tuitionFee.getRemainingAmount().subtract(payment.getPaidAmount()));
             tuitionFee.setPaidAmount(tuitionFee.getPaidAmount().add(payment.getPaidAmount()));
         }
         tuitionFeeRepository.save(tuitionFee);
+        financeRollupService.tuitionFeeChanged(before, tuitionFee);
         return paymentMapper.toPaymentResponse(paymentRepository.save(payment));
     }
 
     @PreAuthorize("hasAuthority('PAYMENT_READ') || hasRole('ADMIN')")
-    public Page<PaymentResponse> getAllPayments(String studentId,String classId, Pageable pageable) {
-        if (studentId == null) {
-            studentId = "";
-        }
-        if (classId == null) {
-            classId = "";
-        }
-        return paymentRepository.search(studentId, classId, pageable)
+    public Page<PaymentResponse> getAllPayments(PaymentSearchRequest request, Pageable pageable) {
+        return paymentRepository.search(request, pageable)
                 .map(paymentMapper::toPaymentResponse);
     }
 
+    @PreAuthorize("hasAuthority('PAYMENT_READ') || hasRole('ADMIN')")
+    public CursorPage<PaymentResponse> scrollPayments(PaymentSearchRequest request, CursorRequest cursor, Sort sort) {
+        Sort order = PaymentSpecification.SCROLLABLE.apply(sort);
+        ScrollPosition position = KeysetCursor.decode(cursor.getCursor(), order, Payment.class);
+        return KeysetCursor.page(paymentRepository.scroll(request, order, position, cursor.limit()),
+                order, paymentMapper::toPaymentResponse);
+    }
+
     @PreAuthorize("hasAuthority('PAYMENT_READ') || hasRole('ADMIN')")
     public PaymentResponse getPaymentById(String id) {
         Payment payment = paymentRepository.findById(id)
@@ -4,16 +4,23 @@ import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.request.user.CreateStudentRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateStudentRequest;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.entity.Role;
 import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.event.AnalyticsChangedEvent;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
+import vn.edu.actvn.server.event.UserChangedEvent;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.UserMapper;
@@ -21,9 +28,19 @@ import vn.edu.actvn.server.repository.RoleRepository;
 import vn.edu.actvn.server.repository.StudentRepository;
 import vn.edu.actvn.server.repository.UserRepository;
 import vn.edu.actvn.server.utils.RandomAvatar;
-
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.utils.KeysetCursor;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.dto.response.user.UserListItem;
+import vn.edu.actvn.server.entity.ClassDiscount;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -31,10 +48,14 @@ import java.util.List;
 @Slf4j
 public class StudentService {
     StudentRepository studentRepository;
+    ProjectionQueries projectionQueries;
     UserMapper userMapper;
     UserRepository userRepository;
     RoleRepository roleRepository;
     PasswordEncoder passwordEncoder;
+    ApplicationEventPublisher eventPublisher;
+
+    static final int MAX_SUGGESTIONS = 20;
 
     @PreAuthorize("hasAuthority('STUDENT_READ') || hasRole('ADMIN')")
     public Student getById(String id) {
@@ -43,11 +64,33 @@ public class StudentService {
     }
 
     @PreAuthorize("hasAuthority('STUDENT_READ_ALL') || hasRole('ADMIN')")
-    public Page<UserResponse> getAllStudents(String fullName,String email, Pageable pageable) {
-        if (fullName == null) fullName = "";
-        if (email == null)  email = "";
-        return studentRepository.search(fullName, email,pageable)
-                .map(userMapper::toStudentResponse);
+    public Page<UserResponse> getAllStudents(UserSearchRequest request, Pageable pageable) {
+        Page<UserResponse> students = projectionQueries.findPage(Student.class,
+                        UserSpecification.matching(request), UserSpecification.page(request, pageable),
+                        UserListItem.class, UserSpecification.<Student>listColumns((root, cb) -> root.get("parentId"), null))
+                .map(userMapper::fromListItem);
+        if (students.isEmpty()) return students;
+
+        Map<String, List<ClassDiscount>> discounts = KeyedValue.group(
+                studentRepository.findClassDiscounts(students.map(UserResponse::getUserId).getContent()));
+        students.forEach(student -> student.setClassDiscounts(discounts.getOrDefault(student.getUserId(), List.of())));
+        return students;
+    }
+
+    @PreAuthorize("hasAuthority('STUDENT_READ_ALL') || hasRole('ADMIN')")
+    public CursorPage<UserResponse> scrollStudents(UserSearchRequest request, CursorRequest cursor, Sort sort) {
+        Sort order = UserSpecification.SCROLLABLE.apply(sort);
+        ScrollPosition position = KeysetCursor.decode(cursor.getCursor(), order, Student.class);
+        return KeysetCursor.page(studentRepository.scroll(request, order, position, cursor.limit()),
+                order, userMapper::toStudentResponse);
+    }
+
+    @PreAuthorize("hasAuthority('STUDENT_READ_ALL') || hasRole('ADMIN')")
+    public List<UserResponse> autocompleteStudents(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) return List.of();
+        return studentRepository.autocomplete(prefix, Math.clamp(limit, 1, MAX_SUGGESTIONS)).stream()
+                .map(userMapper::toStudentResponse)
+                .toList();
     }
 
     @PreAuthorize("hasAuthority('STUDENT_READ') || hasRole('ADMIN')")
@@ -73,7 +116,10 @@ public class StudentService {
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
         userMapper.patchStudent(student, request);
-        return userMapper.toStudentResponse(studentRepository.save(student));
+        Student saved = studentRepository.save(student);
+        eventPublisher.publishEvent(new UserChangedEvent(studentId));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(studentId));
+        return userMapper.toStudentResponse(saved);
     }
 
     @PreAuthorize("hasAuthority('STUDENT_CREATE') || hasRole('ADMIN')")
@@ -90,12 +136,23 @@ public class StudentService {
         student.setRole(role);
 
         student.setAvatarUrl(RandomAvatar.getRandomAvatar(student.getGender().equals("MALE")));
-        return userMapper.toUserResponse(userRepository.save(student));
+        UserResponse response = userMapper.toUserResponse(userRepository.save(student));
+        eventPublisher.publishEvent(new AnalyticsChangedEvent(LocalDate.now().getYear()));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(student.getUserId()));
+        return response;
     }
 
     @PreAuthorize("hasAuthority('STUDENT_DELETE') || hasRole('ADMIN')")
     public void deleteStudent(String id) {
+        // Chuỗi học viên mới theo tháng thuộc năm học viên được tạo, có thể là năm đã đóng
+        int createdYear = studentRepository.findById(id)
+                .map(Student::getCreatedAt)
+                .map(LocalDateTime::getYear)
+                .orElse(LocalDate.now().getYear());
         studentRepository.deleteById(id);
+        eventPublisher.publishEvent(new AnalyticsChangedEvent(createdYear));
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(id));
     }
 
     public Long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end) {
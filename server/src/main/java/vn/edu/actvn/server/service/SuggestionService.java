@@ -0,0 +1,238 @@
+package vn.edu.actvn.server.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.constant.PredefinedRole;
+import vn.edu.actvn.server.dto.response.search.ClassSuggestionSource;
+import vn.edu.actvn.server.dto.response.search.SuggestionResponse;
+import vn.edu.actvn.server.dto.response.search.SuggestionResponse.Type;
+import vn.edu.actvn.server.dto.response.search.UserSuggestionSource;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
+import vn.edu.actvn.server.repository.ClassRepository;
+import vn.edu.actvn.server.repository.UserRepository;
+import vn.edu.actvn.server.utils.PrefixIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Type-ahead suggestions for people and classes served from an in-memory {@link PrefixIndex} per type, so a
+ * keystroke never reaches the database. The indexes are loaded when the application starts and refreshed from
+ * the database after each committed {@link SearchIndexChangedEvent}. Each change is also published through
+ * {@link ClusterNotifications} so that the other nodes refresh the same entry.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SuggestionService {
+    static final int MAX_SUGGESTIONS = 20;
+
+    static final Map<String, Type> ROLE_TYPES = Map.of(
+            PredefinedRole.STUDENT_ROLE, Type.STUDENT,
+            PredefinedRole.TEACHER_ROLE, Type.TEACHER,
+            PredefinedRole.PARENT_ROLE, Type.PARENT);
+
+    // Quyền cần có để thấy gợi ý của từng loại; ADMIN thấy tất cả
+    static final Map<Type, String> READ_AUTHORITIES = Map.of(
+            Type.STUDENT, "STUDENT_READ_ALL",
+            Type.TEACHER, "TEACHER_READ_ALL",
+            Type.PARENT, "PARENT_READ_ALL",
+            Type.CLASS, "CLASS_READ_ALL");
+
+    UserRepository userRepository;
+    ClassRepository classRepository;
+    MeterRegistry meterRegistry;
+    ClusterNotifications clusterNotifications;
+
+    Map<Type, PrefixIndex<SuggestionResponse>> indexes = createIndexes();
+
+    @NonFinal
+    @Value("${search.suggest-notify.enabled:true}")
+    boolean notifyEnabled;
+
+    @NonFinal
+    @Value("${search.suggest-notify.channel:search_index_changed}")
+    String notifyChannel;
+
+    @NonFinal
+    Timer suggestTimer;
+
+    @PostConstruct
+    void init() {
+        suggestTimer = Timer.builder("search.suggest.latency")
+                .description("Time to answer a type-ahead suggestion from the in-memory index")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        if (!notifyEnabled) return;
+        clusterNotifications.subscribe(notifyChannel, new ClusterNotifications.Subscriber() {
+            @Override
+            public void onMessage(String message) {
+                apply(message);
+            }
+
+            // Lần kết nối đầu đã có rebuild() lúc khởi động; kết nối lại thì có thể đã lỡ thay đổi
+            @Override
+            public void onConnected(boolean reconnected) {
+                if (reconnected) rebuild();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        indexes.values().forEach(PrefixIndex::clear);
+        userRepository.findSuggestionSources(ROLE_TYPES.keySet()).forEach(this::index);
+        classRepository.findSuggestionSources().forEach(this::index);
+        log.info("Suggestion index loaded: {} in {} ms",
+                indexes.entrySet().stream()
+                        .map(entry -> entry.getKey() + "=" + entry.getValue().size())
+                        .collect(Collectors.joining(", ")),
+                System.currentTimeMillis() - start);
+    }
+
+    // Đọc lại bản ghi sau khi commit thay vì tin dữ liệu trong event: xoá thì không còn bản ghi, chỉ cần gỡ khỏi index.
+    // Không readOnly: pg_notify bị từ chối trong transaction chỉ đọc, và chỉ được gửi đi khi transaction này commit
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSearchIndexChanged(SearchIndexChangedEvent event) {
+        refresh(event);
+        publish(event);
+    }
+
+    // Áp dụng thay đổi nhận được từ node khác, payload dạng "TARGET:id"
+    public void apply(String payload) {
+        String[] parts = payload.split(":", 2);
+        if (parts.length != 2) {
+            log.warn("Ignoring malformed search index event: {}", payload);
+            return;
+        }
+        try {
+            refresh(new SearchIndexChangedEvent(SearchIndexChangedEvent.Target.valueOf(parts[0]), parts[1]));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed search index event: {}", payload);
+        }
+    }
+
+    private void refresh(SearchIndexChangedEvent event) {
+        switch (event.target()) {
+            case USER -> {
+                ROLE_TYPES.values().forEach(type -> indexes.get(type).remove(event.id()));
+                userRepository.findSuggestionSourceById(event.id()).ifPresent(this::index);
+            }
+            case CLASS -> {
+                indexes.get(Type.CLASS).remove(event.id());
+                classRepository.findSuggestionSourceById(event.id()).ifPresent(this::index);
+            }
+        }
+    }
+
+    @PreAuthorize("hasRole('ADMIN') || hasAnyAuthority('STUDENT_READ_ALL', 'TEACHER_READ_ALL', 'PARENT_READ_ALL', 'CLASS_READ_ALL')")
+    public List<SuggestionResponse> suggest(String query, int limit, Collection<Type> types) {
+        if (query == null || query.isBlank()) return List.of();
+        long start = System.nanoTime();
+        int max = Math.clamp(limit, 1, MAX_SUGGESTIONS);
+
+        List<List<SuggestionResponse>> perType = new ArrayList<>();
+        for (Type type : visibleTypes(types)) {
+            perType.add(indexes.get(type).search(query, max));
+        }
+        List<SuggestionResponse> suggestions = interleave(perType, max);
+
+        suggestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return suggestions;
+    }
+
+    private void publish(SearchIndexChangedEvent event) {
+        if (!notifyEnabled || event.id() == null) return;
+        try {
+            clusterNotifications.publish(notifyChannel, event.target() + ":" + event.id());
+        } catch (Exception e) {
+            // Index của node này đã cập nhật; các node khác nạp lại toàn bộ khi listener kết nối lại
+            log.warn("Cannot publish search index change {}: {}", event, e.getMessage());
+        }
+    }
+
+    private void index(UserSuggestionSource source) {
+        Type type = ROLE_TYPES.get(source.role());
+        if (type == null) return;
+        SuggestionResponse suggestion = SuggestionResponse.builder()
+                .type(type)
+                .id(source.id())
+                .label(source.label())
+                .username(source.username())
+                .build();
+        indexes.get(type).put(source.id(), suggestion, source.label(), source.username());
+    }
+
+    private void index(ClassSuggestionSource source) {
+        SuggestionResponse suggestion = SuggestionResponse.builder()
+                .type(Type.CLASS)
+                .id(source.id())
+                .label(source.label())
+                .build();
+        indexes.get(Type.CLASS).put(source.id(), suggestion, source.label());
+    }
+
+    private Set<Type> visibleTypes(Collection<Type> requested) {
+        Set<Type> types = requested == null || requested.isEmpty() ? EnumSet.allOf(Type.class) : EnumSet.copyOf(requested);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Set<String> authorities = authentication == null ? Set.of() : authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        if (!authorities.contains("ROLE_" + PredefinedRole.ADMIN_ROLE)) {
+            types.removeIf(type -> !authorities.contains(READ_AUTHORITIES.get(type)));
+        }
+        return types;
+    }
+
+    // Lấy lần lượt từng loại để một loại nhiều kết quả (thường là học sinh) không đẩy hết các loại khác ra ngoài
+    private static List<SuggestionResponse> interleave(List<List<SuggestionResponse>> perType, int limit) {
+        List<SuggestionResponse> result = new ArrayList<>(limit);
+        for (int i = 0; result.size() < limit; i++) {
+            boolean added = false;
+            for (List<SuggestionResponse> suggestions : perType) {
+                if (i < suggestions.size() && result.size() < limit) {
+                    result.add(suggestions.get(i));
+                    added = true;
+                }
+            }
+            if (!added) break;
+        }
+        return result;
+    }
+
+    private static Map<Type, PrefixIndex<SuggestionResponse>> createIndexes() {
+        Map<Type, PrefixIndex<SuggestionResponse>> indexes = new EnumMap<>(Type.class);
+        for (Type type : Type.values()) {
+            indexes.put(type, new PrefixIndex<>());
+        }
+        return indexes;
+    }
+}
@@ -10,12 +10,13 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.dto.request.teacherpayment.TeacherPaymentSearchRequest;
 import vn.edu.actvn.server.dto.request.teacherpayment.CreateTeacherPaymentRequest;
 import vn.edu.actvn.server.dto.request.teacherpayment.UpdateTeacherPaymentRequest;
 import vn.edu.actvn.server.dto.response.teacherpayment.TeacherPaymentResponse;
+import vn.edu.actvn.server.dto.response.user.CurrentUser;
 import vn.edu.actvn.server.entity.Teacher;
 import vn.edu.actvn.server.entity.TeacherPayment;
 import vn.edu.actvn.server.entity.TeacherPayment.Status;
@@ -37,13 +38,12 @@ public class TeacherPaymentService {
     TeacherPaymentRepository teacherPaymentRepository;
     TeacherRepository teacherRepository;
     TeacherPaymentMapper teacherPaymentMapper;
+    CurrentUserService currentUserService;
+    FinanceRollupService financeRollupService;
 
     @PreAuthorize("hasRole('ADMIN')")
-    public Page<TeacherPaymentResponse> getAll(String teacherId,Integer month, Integer year,Pageable pageable) {
-        if(teacherId == null) teacherId = "";
-        if(month == null) month = 0;
-        if(year == null) year = 0;
-        return teacherPaymentRepository.search(teacherId,month,year,pageable).map(teacherPaymentMapper::toResponse);
+    public Page<TeacherPaymentResponse> getAll(TeacherPaymentSearchRequest request, Pageable pageable) {
+        return teacherPaymentRepository.search(request, pageable).map(teacherPaymentMapper::toResponse);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -55,7 +55,11 @@ public class TeacherPaymentService {
         // Lấy bản ghi gần nhất theo tháng/năm
         Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "createdAt"));
         Page<TeacherPayment> page = teacherPaymentRepository
-                .search(req.getTeacherId(), req.getMonth(), req.getYear(), pageable);
+                .search(TeacherPaymentSearchRequest.builder()
+                        .teacherId(req.getTeacherId())
+                        .month(req.getMonth())
+                        .year(req.getYear())
+                        .build(), pageable);
 
         BigDecimal paidAmount = req.getPaidAmount();
         BigDecimal remainingAmount = req.getAmount().subtract(paidAmount);
@@ -83,6 +87,7 @@ public class TeacherPaymentService {
 
         updateStatus(payment);
         teacherPaymentRepository.save(payment);
+        financeRollupService.teacherPaid(payment.getYear(), payment.getMonth(), payment.getPaidAmount());
 
         return teacherPaymentMapper.toResponse(payment);
     }
@@ -100,6 +105,7 @@ public class TeacherPaymentService {
         }
         updateStatus(payment);
         teacherPaymentRepository.save(payment);
+        financeRollupService.teacherPaid(payment.getYear(), payment.getMonth(), req.getPaidAmount());
         return teacherPaymentMapper.toResponse(payment);
     }
 
@@ -112,13 +118,17 @@ public class TeacherPaymentService {
 
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
     public Page<TeacherPaymentResponse> getByTeacher(Integer month, Integer year,Pageable pageable) {
-        if (month == null) month = 0;
-        if (year == null) year = 0;
-        var context = SecurityContextHolder.getContext();
-        String teacherName = context.getAuthentication().getName();
-        Teacher teacher = teacherRepository.findByUsername(teacherName)
-                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
-        return teacherPaymentRepository.search(teacher.getUserId(), month, year , pageable)
+        // Chỉ giáo viên mới có bảng lương (ADMIN qua được @PreAuthorize nhưng không phải giáo viên)
+        CurrentUser user = currentUserService.get();
+        if (!user.isTeacher()) {
+            throw new AppException(ErrorCode.USER_NOT_EXISTED);
+        }
+        TeacherPaymentSearchRequest request = TeacherPaymentSearchRequest.builder()
+                .teacherId(user.userId())
+                .month(month)
+                .year(year)
+                .build();
+        return teacherPaymentRepository.search(request, pageable)
                 .map(teacherPaymentMapper::toResponse);
     }
 
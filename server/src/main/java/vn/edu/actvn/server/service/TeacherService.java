@@ -6,18 +6,21 @@ import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 
 import org.jetbrains.annotations.NotNull;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
 import vn.edu.actvn.server.dto.request.user.CreateTeacherRequest;
 import vn.edu.actvn.server.dto.request.user.UpdateTeacherRequest;
 import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.entity.Role;
 import vn.edu.actvn.server.entity.Teacher;
 import vn.edu.actvn.server.entity.TeacherPayment;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
+import vn.edu.actvn.server.event.UserChangedEvent;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.UserMapper;
@@ -26,6 +29,9 @@ import vn.edu.actvn.server.repository.TeacherPaymentRepository;
 import vn.edu.actvn.server.repository.UserRepository;
 import vn.edu.actvn.server.repository.TeacherRepository;
 import vn.edu.actvn.server.utils.RandomAvatar;
+import vn.edu.actvn.server.dto.response.user.UserListItem;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -37,18 +43,31 @@ import java.util.List;
 @Slf4j
 public class TeacherService {
     TeacherRepository teacherRepository;
+    ProjectionQueries projectionQueries;
     RoleRepository roleRepository;
     PasswordEncoder passwordEncoder;
     UserMapper userMapper;
     UserRepository userRepository;
     private final TeacherPaymentRepository teacherPaymentRepository;
+    CurrentUserService currentUserService;
+    ApplicationEventPublisher eventPublisher;
+
+    static final int MAX_SUGGESTIONS = 20;
+
+    @PreAuthorize("hasAuthority('TEACHER_READ_ALL') || hasRole('ADMIN')")
+    public Page<UserResponse> getAllTeachers(UserSearchRequest request, Pageable pageable) {
+        return projectionQueries.findPage(Teacher.class,
+                        UserSpecification.matching(request), UserSpecification.page(request, pageable),
+                        UserListItem.class, UserSpecification.<Teacher>listColumns(null, (root, cb) -> root.get("salary")))
+                .map(userMapper::fromListItem);
+    }
 
     @PreAuthorize("hasAuthority('TEACHER_READ_ALL') || hasRole('ADMIN')")
-    public Page<UserResponse> getAllTeachers(String fullName, String email, Pageable pageable) {
-        if(fullName==null) fullName="";
-        if(email==null) email="";
-        return teacherRepository.search(fullName,email,pageable)
-                .map(userMapper::toTeacherResponse);
+    public List<UserResponse> autocompleteTeachers(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) return List.of();
+        return teacherRepository.autocomplete(prefix, Math.clamp(limit, 1, MAX_SUGGESTIONS)).stream()
+                .map(userMapper::toTeacherResponse)
+                .toList();
     }
 
     @PreAuthorize("hasAuthority('TEACHER_READ') || hasRole('ADMIN')")
@@ -60,15 +79,16 @@ public class TeacherService {
 
     @PreAuthorize("hasAuthority('TEACHER_UPDATE') || hasRole('ADMIN')")
     public UserResponse patchTeacher(String teacherId,UpdateTeacherRequest request) {
-        var context = SecurityContextHolder.getContext();
-        String role = context.getAuthentication().getAuthorities().iterator().next().getAuthority();
-        if(request.getSalary()!=null && !role.equals("ROLE_ADMIN")) {
+        if(request.getSalary()!=null && !currentUserService.get().isAdmin()) {
             throw new AppException(ErrorCode.UNAUTHORIZED);
         }
         Teacher teacher = teacherRepository.findById(teacherId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
         userMapper.patchTeacher(teacher, request);
-        return userMapper.toTeacherResponse(teacherRepository.save(teacher));
+        Teacher saved = teacherRepository.save(teacher);
+        eventPublisher.publishEvent(new UserChangedEvent(teacherId));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(teacherId));
+        return userMapper.toTeacherResponse(saved);
     }
 
     @PreAuthorize("hasAuthority('TEACHER_CREATE') || hasRole('ADMIN')")
@@ -102,6 +122,7 @@ public class TeacherService {
                         .build()
         );
 
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(teacherEntity.getUserId()));
         return userMapper.toUserResponse(teacherEntity);
     }
 
@@ -109,6 +130,8 @@ public class TeacherService {
     @PreAuthorize("hasAuthority('TEACHER_DELETE') || hasRole('ADMIN')")
     public void deleteTeacher(String id) {
         teacherRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(id));
     }
 }
 
@@ -0,0 +1,137 @@
+package vn.edu.actvn.server.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.constant.TokenPolicy;
+import vn.edu.actvn.server.entity.InvalidatedToken;
+import vn.edu.actvn.server.repository.InvalidatedTokenRepository;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bản sao trong bộ nhớ của bảng invalidated_token: jti -> thời điểm hết hạn (epoch millis). Token còn được chấp nhận
+// tới exp + TokenPolicy.CLOCK_SKEW, nên cả bộ nhớ lẫn bảng đều giữ token đã thu hồi tới lúc đó
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TokenRevocationIndex {
+    InvalidatedTokenRepository invalidatedTokenRepository;
+    ClusterNotifications clusterNotifications;
+
+    Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    @NonFinal
+    @Value("${jwt.revocation-notify.enabled:true}")
+    boolean notifyEnabled;
+
+    @NonFinal
+    @Value("${jwt.revocation-notify.channel:token_revoked}")
+    String notifyChannel;
+
+    @PostConstruct
+    void init() {
+        reload();
+        if (!notifyEnabled) return;
+        clusterNotifications.subscribe(notifyChannel, new ClusterNotifications.Subscriber() {
+            @Override
+            public void onMessage(String message) {
+                apply(message);
+            }
+
+            // Token bị thu hồi ở node khác trong lúc chưa nghe (khởi động, mất kết nối) chỉ còn trong DB
+            @Override
+            public void onConnected(boolean reconnected) {
+                reload();
+            }
+        });
+    }
+
+    public void reload() {
+        invalidatedTokenRepository.findByExpiryTimeAfter(new Date(retainedAfter(System.currentTimeMillis())))
+                .forEach(token -> put(token.getId(), token.getExpiryTime()));
+        log.info("Loaded {} revoked tokens into memory", revoked.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) return false;
+
+        Long expiry = revoked.get(jti);
+        if (expiry == null) return false;
+
+        if (expiry <= retainedAfter(System.currentTimeMillis())) {
+            revoked.remove(jti, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    public void revoke(InvalidatedToken token) {
+        invalidatedTokenRepository.save(token);
+        put(token.getId(), token.getExpiryTime());
+        publish(token);
+    }
+
+    // Áp dụng sự kiện thu hồi nhận được từ node khác, nội dung dạng "jti:expiryMillis"
+    public void apply(String payload) {
+        int separator = payload.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("Ignoring malformed revocation event: {}", payload);
+            return;
+        }
+        try {
+            long expiry = Long.parseLong(payload.substring(separator + 1));
+            revoked.put(payload.substring(0, separator), expiry);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed revocation event: {}", payload);
+        }
+    }
+
+    // Thay cho lịch dọn bảng lúc nửa đêm: token hết hạn bị loại khỏi bộ nhớ và DB
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.revocation-purge-interval:PT10M}")
+    public int purgeExpired() {
+        long cutoff = retainedAfter(System.currentTimeMillis());
+        revoked.values().removeIf(expiry -> expiry <= cutoff);
+
+        int deleted = invalidatedTokenRepository.deleteExpiredBefore(new Date(cutoff));
+        if (deleted > 0) {
+            log.info("Purged {} expired revoked tokens", deleted);
+        }
+        return deleted;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void publish(InvalidatedToken token) {
+        if (!notifyEnabled || token.getId() == null || token.getExpiryTime() == null) return;
+        try {
+            clusterNotifications.publish(notifyChannel, token.getId() + ":" + token.getExpiryTime().getTime());
+        } catch (Exception e) {
+            // Token đã được lưu vào DB, các node khác sẽ thấy khi listener kết nối lại
+            log.warn("Cannot publish revocation of token {}: {}", token.getId(), e.getMessage());
+        }
+    }
+
+    // Token hết hạn trước mốc này không còn được chấp nhận kể cả khi tính độ lệch đồng hồ, bỏ khỏi danh sách được
+    private static long retainedAfter(long now) {
+        return now - TokenPolicy.CLOCK_SKEW.toMillis();
+    }
+
+    private void put(String jti, Date expiryTime) {
+        if (jti == null || expiryTime == null) return;
+        revoked.put(jti, expiryTime.getTime());
+    }
+}
@@ -3,96 +3,156 @@ package vn.edu.actvn.server.service;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import vn.edu.actvn.server.dto.request.tuitionfee.TuitionFeeSearchRequest;
 import vn.edu.actvn.server.dto.request.tuitionfee.CreateTuitionFeeRequest;
 import vn.edu.actvn.server.dto.request.tuitionfee.UpdateTuitionFeeRequest;
+import vn.edu.actvn.server.dto.response.KeyedValue;
 import vn.edu.actvn.server.dto.response.tuitionfee.TuitionFeeResponse;
+import vn.edu.actvn.server.dto.response.tuitionfee.TuitionFeeUpsertResult;
 import vn.edu.actvn.server.entity.*;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.TuitionFeeMapper;
-import vn.edu.actvn.server.repository.AttendanceRepository;
+import vn.edu.actvn.server.repository.StudentAttendanceRepository;
+import vn.edu.actvn.server.repository.StudentRepository;
 import vn.edu.actvn.server.repository.TuitionFeeRepository;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.utils.KeysetCursor;
+import vn.edu.actvn.server.repository.specification.TuitionFeeSpecification;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.YearMonth;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class TuitionFeeService {
+    static final int RECALCULATION_BATCH_SIZE = 100;
 
     TuitionFeeRepository tuitionFeeRepository;
     TuitionFeeMapper tuitionFeeMapper;
     StudentService studentService;
     ClassService classService;
-    AttendanceRepository attendanceRepository;
+    StudentAttendanceRepository studentAttendanceRepository;
+    StudentRepository studentRepository;
+    FinanceRollupService financeRollupService;
 
     private long countStudentPresentDaysInMonth(String studentId, String classId, LocalDate yearMonth) {
-        YearMonth month = YearMonth.from(yearMonth);
-        LocalDate startDate = month.atDay(1);
-        LocalDate endDate = month.atEndOfMonth();
-
-        List<Attendance> attendances = attendanceRepository
-                .findByEntityClass_ClassIdAndDateBetween(classId, startDate, endDate);
-
-        return attendances.stream()
-                .flatMap(attendance -> attendance.getStudentAttendances().stream())
-                .filter(sa -> sa.getStudentId().equals(studentId)
-                        && sa.getStatus() == Attendance.Status.PRESENT)
-                .count();
+        LocalDate month = yearMonth.withDayOfMonth(1);
+        return studentAttendanceRepository.countPresentDaysOfStudent(classId, studentId, month, month.plusMonths(1));
     }
 
+    // Một câu lệnh upsert theo (học sinh, lớp, tháng), không đọc khoản cũ trước khi ghi nên hai lần lưu điểm danh
+    // đồng thời không tạo hai dòng, và học sinh học hai lớp có hai khoản riêng
+    @Transactional
     public TuitionFeeResponse createTuitionFee(CreateTuitionFeeRequest request) {
-        request.setYearMonth(request.getYearMonth().withDayOfMonth(1));
-        TuitionFee tuitionFee = tuitionFeeRepository
-                .findByStudent_UserIdAndYearMonth(request.getStudentId(), request.getYearMonth());
-
-        if (tuitionFee == null) {
-            tuitionFee = tuitionFeeMapper.toTuitionFee(request);
-        }
-
+        LocalDate month = request.getYearMonth().withDayOfMonth(1);
         Student student = studentService.getById(request.getStudentId());
         EntityClass entityClass = classService.getById(request.getClassId());
 
-        tuitionFee.setStudent(student);
-        tuitionFee.setEntityClass(entityClass);
-
-        long numDaysPresent = countStudentPresentDaysInMonth(
-                        request.getStudentId(), request.getClassId(),
-                        request.getYearMonth());
-        BigDecimal amount = entityClass.getUnitPrice().multiply(BigDecimal.valueOf(numDaysPresent));
+        long numDaysPresent = countStudentPresentDaysInMonth(student.getUserId(), entityClass.getClassId(), month);
         int discount = student.getClassDiscounts().stream()
                 .filter(cd -> cd.getClassId().equals(entityClass.getClassId()))
                 .map(ClassDiscount::getDiscount)
                 .findFirst()
                 .orElse(0);
-        tuitionFee.setAmount(amount.multiply(BigDecimal.valueOf(100 - discount))
-                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
-
-        tuitionFee.setPaidAmount(tuitionFee.getPaidAmount()==null? BigDecimal.ZERO : tuitionFee.getPaidAmount());
-        tuitionFee.setRemainingAmount(tuitionFee.getAmount().subtract(tuitionFee.getPaidAmount()));
+        BigDecimal amount = amountOf(entityClass.getUnitPrice(), numDaysPresent, discount);
+
+        // Không có dòng trả về: transaction khác vừa tạo khoản này, lần gọi thứ hai sẽ cập nhật nó
+        TuitionFeeUpsertResult result = upsert(student.getUserId(), entityClass.getClassId(), month, amount)
+                .or(() -> upsert(student.getUserId(), entityClass.getClassId(), month, amount))
+                .orElseThrow(() -> new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION));
+        reportOverpayment(entityClass.getClassId(), month, result);
+
+        financeRollupService.tuitionTotalsChanged(previousTotals(month, result), currentTotals(month, result));
+
+        return tuitionFeeMapper.toTuitionFeeResponse(TuitionFee.builder()
+                .tuitionFeeId(result.getTuitionFeeId())
+                .student(student)
+                .entityClass(entityClass)
+                .yearMonth(month)
+                .amount(result.getAmount())
+                .paidAmount(result.getPaidAmount())
+                .remainingAmount(result.getRemainingAmount())
+                .build());
+    }
 
-        TuitionFee savedTuitionFee = tuitionFeeRepository.save(tuitionFee);
-        return tuitionFeeMapper.toTuitionFeeResponse(savedTuitionFee);
+    // Tính lại học phí cả lớp trong một tháng: một truy vấn gộp đếm buổi có mặt của mọi học sinh, ưu đãi một truy vấn,
+    // rồi upsert theo lô như createTuitionFee: khoản vừa được tạo đồng thời ở request hay node khác không làm hỏng cả lô
+    @Transactional
+    public int recalculateTuitionFees(String classId, LocalDate yearMonth) {
+        LocalDate month = yearMonth.withDayOfMonth(1);
+        Map<String, Long> presentDays = studentAttendanceRepository
+                .countPresentDays(classId, month, month.plusMonths(1)).stream()
+                .collect(Collectors.toMap(KeyedValue::key, KeyedValue::value));
+        if (presentDays.isEmpty()) return 0;
+
+        EntityClass entityClass = classService.getById(classId);
+        Map<String, Integer> discounts = studentRepository.findClassDiscounts(presentDays.keySet()).stream()
+                .filter(row -> classId.equals(row.value().getClassId()))
+                .collect(Collectors.toMap(KeyedValue::key, row -> row.value().getDiscount(), (first, second) -> first));
+        Map<String, BigDecimal> amounts = new HashMap<>();
+        presentDays.forEach((studentId, days) -> amounts.put(studentId,
+                amountOf(entityClass.getUnitPrice(), days, discounts.getOrDefault(studentId, 0))));
+
+        List<String> studentIds = new ArrayList<>(amounts.keySet());
+        List<FinanceRollupService.TuitionFeeTotals> before = new ArrayList<>();
+        List<FinanceRollupService.TuitionFeeTotals> after = new ArrayList<>();
+        for (int from = 0; from < studentIds.size(); from += RECALCULATION_BATCH_SIZE) {
+            List<String> batch = studentIds.subList(from, Math.min(from + RECALCULATION_BATCH_SIZE, studentIds.size()));
+            List<TuitionFeeUpsertResult> results = new ArrayList<>(upsertAll(classId, month, batch, amounts));
+            // Học sinh không có dòng trả về: transaction khác vừa tạo khoản của họ, lần gọi thứ hai sẽ cập nhật nó
+            Set<String> missing = new HashSet<>(batch);
+            results.forEach(result -> missing.remove(result.getStudentId()));
+            if (!missing.isEmpty()) results.addAll(upsertAll(classId, month, missing, amounts));
+            if (results.size() != batch.size()) throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
+
+            results.forEach(result -> {
+                reportOverpayment(classId, month, result);
+                before.add(previousTotals(month, result));
+                after.add(currentTotals(month, result));
+            });
+        }
+        financeRollupService.tuitionFeesChanged(before, after);
+        return after.size();
     }
 
     @PreAuthorize("hasAuthority('TUITION_FEE_READ_ALL') || hasRole('ADMIN')")
-    public Page<TuitionFeeResponse> getAllTuitionFees(String studentId,String classId,YearMonth yearMonth,Pageable pageable) {
-        LocalDate yearMonthDate = yearMonth != null ? yearMonth.atDay(1) : null;
-        if (studentId == null) studentId = "";
-        if (classId == null) classId = "";
-        return tuitionFeeRepository.search(studentId,classId, yearMonthDate, pageable)
+    public Page<TuitionFeeResponse> getAllTuitionFees(TuitionFeeSearchRequest request, Pageable pageable) {
+        return tuitionFeeRepository.search(request, pageable)
                 .map(tuitionFeeMapper::toTuitionFeeResponse);
     }
 
+    @PreAuthorize("hasAuthority('TUITION_FEE_READ_ALL') || hasRole('ADMIN')")
+    public CursorPage<TuitionFeeResponse> scrollTuitionFees(TuitionFeeSearchRequest request, CursorRequest cursor, Sort sort) {
+        Sort order = TuitionFeeSpecification.SCROLLABLE.apply(sort);
+        ScrollPosition position = KeysetCursor.decode(cursor.getCursor(), order, TuitionFee.class);
+        return KeysetCursor.page(tuitionFeeRepository.scroll(request, order, position, cursor.limit()),
+                order, tuitionFeeMapper::toTuitionFeeResponse);
+    }
+
     @PreAuthorize("hasAuthority('TUITION_FEE_READ') || hasRole('ADMIN')")
     public TuitionFeeResponse getTuitionFeeById(String id) {
         return tuitionFeeRepository.findById(id)
@@ -101,9 +161,11 @@ public class TuitionFeeService {
     }
 
     @PreAuthorize("hasAuthority('TUITION_FEE_UPDATE') || hasRole('ADMIN')")
+    @Transactional
     public TuitionFeeResponse partialUpdateTuitionFee(String id, UpdateTuitionFeeRequest request) {
         TuitionFee existingTuitionFee = tuitionFeeRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.TUITION_FEE_NOT_EXISTED));
+        var before = FinanceRollupService.TuitionFeeTotals.of(existingTuitionFee);
 
         if (request.getStudentId() != null && !request.getStudentId().equals(existingTuitionFee.getStudent().getUserId())) {
             Student newStudent = studentService.getById(request.getStudentId());
@@ -117,14 +179,57 @@ public class TuitionFeeService {
 
         tuitionFeeMapper.partialUpdate(request, existingTuitionFee);
         TuitionFee updatedTuitionFee = tuitionFeeRepository.save(existingTuitionFee);
+        financeRollupService.tuitionFeeChanged(before, updatedTuitionFee);
         return tuitionFeeMapper.toTuitionFeeResponse(updatedTuitionFee);
     }
 
     @PreAuthorize("hasAuthority('TUITION_FEE_DELETE') || hasRole('ADMIN')")
+    @Transactional
     public void deleteTuitionFee(String id) {
-        if (!tuitionFeeRepository.existsById(id)) {
-            throw new AppException(ErrorCode.TUITION_FEE_NOT_EXISTED);
+        TuitionFee tuitionFee = tuitionFeeRepository.findById(id)
+                .orElseThrow(() -> new AppException(ErrorCode.TUITION_FEE_NOT_EXISTED));
+        tuitionFeeRepository.delete(tuitionFee);
+        financeRollupService.tuitionFeeChanged(FinanceRollupService.TuitionFeeTotals.of(tuitionFee), null);
+    }
+
+    private Optional<TuitionFeeUpsertResult> upsert(String studentId, String classId, LocalDate month, BigDecimal amount) {
+        return tuitionFeeRepository.upsert(UUID.randomUUID().toString(), studentId, classId, month, amount,
+                LocalDateTime.now());
+    }
+
+    private List<TuitionFeeUpsertResult> upsertAll(String classId, LocalDate month, Collection<String> studentIds,
+                                                   Map<String, BigDecimal> amounts) {
+        return tuitionFeeRepository.upsertAll(
+                studentIds.stream().map(studentId -> UUID.randomUUID().toString()).toArray(String[]::new),
+                studentIds.toArray(String[]::new),
+                studentIds.stream().map(amounts::get).toArray(BigDecimal[]::new),
+                classId, month, LocalDateTime.now());
+    }
+
+    // Số đã đóng được giữ nguyên khi học phí tính lại thấp hơn (còn nợ về 0): báo ra để hoàn tiền hoặc chuyển sang tháng sau
+    private static void reportOverpayment(String classId, LocalDate month, TuitionFeeUpsertResult result) {
+        BigDecimal overpaid = result.getPaidAmount().subtract(result.getAmount());
+        if (overpaid.signum() > 0) {
+            log.warn("Tuition fee {} of student {} in class {} for {} is overpaid by {} after recalculation",
+                    result.getTuitionFeeId(), result.getStudentId(), classId, month, overpaid);
         }
-        tuitionFeeRepository.deleteById(id);
+    }
+
+    // null khi upsert vừa tạo khoản học phí
+    private static FinanceRollupService.TuitionFeeTotals previousTotals(LocalDate month, TuitionFeeUpsertResult result) {
+        return result.getPreviousAmount() == null ? null
+                : new FinanceRollupService.TuitionFeeTotals(month, result.getPreviousAmount(),
+                        result.getPreviousPaidAmount(), result.getPreviousRemainingAmount());
+    }
+
+    private static FinanceRollupService.TuitionFeeTotals currentTotals(LocalDate month, TuitionFeeUpsertResult result) {
+        return new FinanceRollupService.TuitionFeeTotals(month, result.getAmount(), result.getPaidAmount(),
+                result.getRemainingAmount());
+    }
+
+    private static BigDecimal amountOf(BigDecimal unitPrice, long presentDays, int discount) {
+        BigDecimal amount = unitPrice.multiply(BigDecimal.valueOf(presentDays));
+        return amount.multiply(BigDecimal.valueOf(100 - discount))
+                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
     }
 }
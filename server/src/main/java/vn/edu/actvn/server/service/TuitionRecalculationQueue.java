@@ -0,0 +1,213 @@
+package vn.edu.actvn.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.edu.actvn.server.dto.response.tuitionfee.TuitionRecalculationBacklog;
+import vn.edu.actvn.server.entity.TuitionRecalculationJob;
+import vn.edu.actvn.server.event.TuitionRecalculationEvent;
+import vn.edu.actvn.server.repository.TuitionRecalculationJobRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recomputes tuition off the request thread through the {@code tuition_recalculation_jobs} table, so queued work
+ * survives restarts and is visible to every node. A {@link TuitionRecalculationEvent} queues its (class, month) in
+ * the transaction that changed the attendance; saving the same class and month again before the job runs does not
+ * queue a second one. A job becomes due {@code tuition.recalculation.delay} after it was queued, so a burst of
+ * corrections is computed once. Each node runs one worker that locks the next due job with {@code SKIP LOCKED},
+ * recalculates it through {@link TuitionFeeService#recalculateTuitionFees} and deletes it in the same transaction.
+ * A failed job stays queued and is retried after an exponential backoff, starting at
+ * {@code tuition.recalculation.retry-backoff} and capped at {@code tuition.recalculation.max-backoff}.
+ * {@code tuition.recalculation.lag} reports how long the oldest job has been waiting; callers that must not act on
+ * stale fees check {@link #isPending} and ask the client to retry later instead of waiting.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TuitionRecalculationQueue {
+    static final int MAX_ERROR_LENGTH = 2000;
+
+    TuitionFeeService tuitionFeeService;
+    TuitionRecalculationJobRepository jobRepository;
+    TransactionTemplate transactionTemplate;
+    MeterRegistry meterRegistry;
+
+    // Bản đọc gần nhất của hàng đợi cho gauge, worker cập nhật sau mỗi vòng để lúc scrape không phải truy vấn DB
+    AtomicReference<Backlog> backlog = new AtomicReference<>(new Backlog(0, 0));
+
+    @NonFinal
+    @Value("${tuition.recalculation.delay:PT1S}")
+    Duration delay;
+
+    // Job xếp hàng ở node khác chỉ được thấy ở lần hỏi DB kế tiếp
+    @NonFinal
+    @Value("${tuition.recalculation.poll-interval:PT1S}")
+    Duration pollInterval;
+
+    @NonFinal
+    @Value("${tuition.recalculation.retry-backoff:PT5S}")
+    Duration retryBackoff;
+
+    @NonFinal
+    @Value("${tuition.recalculation.max-backoff:PT10M}")
+    Duration maxBackoff;
+
+    @NonFinal
+    Counter failures;
+
+    @NonFinal
+    volatile Thread worker;
+
+    private record Backlog(long pending, double lagSeconds) {
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("tuition.recalculation.lag", backlog, value -> value.get().lagSeconds())
+                .description("Age of the oldest queued tuition recalculation, across all nodes")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("tuition.recalculation.pending", backlog, value -> value.get().pending())
+                .register(meterRegistry);
+        failures = Counter.builder("tuition.recalculation.failures")
+                .register(meterRegistry);
+    }
+
+    // Chỉ chạy khi context đã sẵn sàng (migration xong, mọi bean đã khởi tạo), nhưng trước các listener chậm khác của
+    // ApplicationReadyEvent (nạp index gợi ý...). Gán trước khi start vì work() dừng ngay nếu worker chưa phải thread này
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        Thread thread = Thread.ofPlatform().daemon().name("tuition-recalculation").unstarted(this::work);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) thread.interrupt();
+    }
+
+    // Ghi vào hàng đợi trong chính transaction sửa điểm danh: hai việc cùng commit hoặc cùng rollback
+    @EventListener
+    @Transactional
+    public void onTuitionRecalculation(TuitionRecalculationEvent event) {
+        jobRepository.enqueue(event.classId(), event.month(), seconds(delay));
+    }
+
+    public boolean isPending(String classId, LocalDate month) {
+        return jobRepository.existsById(key(classId, month));
+    }
+
+    public long size() {
+        return backlog.get().pending();
+    }
+
+    public Duration lag() {
+        return Duration.ofMillis(Math.round(backlog.get().lagSeconds() * 1000));
+    }
+
+    private void work() {
+        while (worker == Thread.currentThread()) {
+            try {
+                while (worker == Thread.currentThread() && runNextDue()) {
+                    // chạy hết các job đã đến hạn rồi mới ngủ
+                }
+                Thread.sleep(untilNextPoll());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Thường là mất kết nối DB: job vẫn nằm trong bảng, thử lại ở vòng sau
+                log.warn("Tuition recalculation worker cannot reach the queue: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // false khi không còn job đến hạn (hoặc job đến hạn đang do node khác chạy)
+    boolean runNextDue() {
+        AtomicReference<TuitionRecalculationJob> claimed = new AtomicReference<>();
+        long start = System.nanoTime();
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                Optional<TuitionRecalculationJob> next = jobRepository.lockNextDue();
+                if (next.isEmpty()) return false;
+                TuitionRecalculationJob job = next.get();
+                claimed.set(job);
+                int fees = tuitionFeeService.recalculateTuitionFees(job.getClassId(), job.getMonth());
+                jobRepository.delete(job);
+                log.debug("Recalculated {} tuition fees of class {} for {} in {} ms, attempt {}",
+                        fees, job.getClassId(), job.getMonth(), (System.nanoTime() - start) / 1_000_000,
+                        job.getAttempts() + 1);
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            TuitionRecalculationJob job = claimed.get();
+            if (job == null) throw e;
+            reschedule(job, e);
+            return true;
+        }
+    }
+
+    // Transaction tính lại đã rollback nên dòng của job vẫn còn: chỉ đẩy hạn chạy lại ra sau
+    private void reschedule(TuitionRecalculationJob job, RuntimeException cause) {
+        failures.increment();
+        Duration backoff = backoff(job.getAttempts());
+        String error = String.valueOf(cause.getMessage());
+        transactionTemplate.executeWithoutResult(status -> jobRepository.reschedule(job.getClassId(), job.getMonth(),
+                seconds(backoff), error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH))));
+        log.warn("Tuition recalculation of class {} for {} failed (attempt {}), retrying in {}: {}",
+                job.getClassId(), job.getMonth(), job.getAttempts() + 1, backoff, cause.getMessage());
+    }
+
+    Duration backoff(int attempts) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    // Ngủ tới khi job sớm nhất đến hạn, nhưng không quá pollInterval để thấy job của node khác. Job đã đến hạn mà
+    // runNextDue không lấy được là đang chạy ở node khác: đợi nguyên pollInterval
+    private Duration untilNextPoll() {
+        TuitionRecalculationBacklog current = jobRepository.backlog();
+        backlog.set(new Backlog(current.getPending(),
+                current.getLagSeconds() == null ? 0 : current.getLagSeconds()));
+        Double nextDueSeconds = current.getNextDueSeconds();
+        if (nextDueSeconds == null || nextDueSeconds <= 0) return pollInterval;
+        Duration untilDue = Duration.ofMillis(Math.round(nextDueSeconds * 1000));
+        return untilDue.compareTo(pollInterval) < 0 ? untilDue : pollInterval;
+    }
+
+    private static TuitionRecalculationJob.Key key(String classId, LocalDate month) {
+        return new TuitionRecalculationJob.Key(classId, month.withDayOfMonth(1));
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+}
@@ -2,13 +2,16 @@ package vn.edu.actvn.server.service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Map;
 
 import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -24,6 +27,8 @@ import vn.edu.actvn.server.dto.response.user.UserResponse;
 import vn.edu.actvn.server.entity.Otp;
 import vn.edu.actvn.server.entity.Role;
 import vn.edu.actvn.server.entity.User;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
+import vn.edu.actvn.server.event.UserChangedEvent;
 import vn.edu.actvn.server.exception.AppException;
 import vn.edu.actvn.server.exception.ErrorCode;
 import vn.edu.actvn.server.mapper.UserMapper;
@@ -31,6 +36,19 @@ import vn.edu.actvn.server.repository.OtpRepository;
 import vn.edu.actvn.server.repository.RoleRepository;
 import vn.edu.actvn.server.repository.UserRepository;
 import vn.edu.actvn.server.utils.RandomAvatar;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.utils.KeysetCursor;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
+import vn.edu.actvn.server.constant.PredefinedRole;
+import vn.edu.actvn.server.dto.response.KeyedValue;
+import vn.edu.actvn.server.dto.response.user.UserListItem;
+import vn.edu.actvn.server.entity.ClassDiscount;
+import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.entity.Teacher;
+import vn.edu.actvn.server.repository.ParentRepository;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+import vn.edu.actvn.server.repository.StudentRepository;
 
 @Service
 @RequiredArgsConstructor
@@ -38,11 +56,17 @@ import vn.edu.actvn.server.utils.RandomAvatar;
 @Slf4j
 public class UserService {
     UserRepository userRepository;
+    StudentRepository studentRepository;
+    ParentRepository parentRepository;
+    ProjectionQueries projectionQueries;
     RoleRepository roleRepository;
     UserMapper userMapper;
     PasswordEncoder passwordEncoder;
     ImageUploadService imageUploadService;
     OtpService otpService;
+    PasswordHashingService passwordHashingService;
+    CurrentUserService currentUserService;
+    ApplicationEventPublisher eventPublisher;
 
     @PreAuthorize("hasRole('ADMIN')")
     public UserResponse createUser(CreateAdminRequest request) {
@@ -62,10 +86,7 @@ public class UserService {
 
     @PreAuthorize("hasRole('ADMIN')")
     public UserResponse getMyInfo() {
-        var context = SecurityContextHolder.getContext();
-        String name = context.getAuthentication().getName();
-
-        User user = userRepository.findByUsername(name).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
+        User user = findCurrentUser();
 
         return userMapper.toUserResponse(user);
     }
@@ -76,7 +97,10 @@ public class UserService {
 
         userMapper.updateAdmin(user, request);
 
-        return userMapper.toUserResponse(userRepository.save(user));
+        UserResponse response = userMapper.toUserResponse(userRepository.save(user));
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(userId));
+        return response;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -84,18 +108,62 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
         userMapper.patchAdmin(user, request);
-        return userMapper.toUserResponse(userRepository.save(user));
+        UserResponse response = userMapper.toUserResponse(userRepository.save(user));
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(userId));
+        return response;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     public void deleteUser(String userId) {
         userRepository.deleteById(userId);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
+        eventPublisher.publishEvent(SearchIndexChangedEvent.user(userId));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     public Page<UserResponse> getUsers(Pageable pageable) {
-        return userRepository.findAll(pageable)
-                .map(userMapper::toUserResponse);
+        Page<UserResponse> users = projectionQueries.findPage(User.class, null, pageable, UserListItem.class,
+                        UserSpecification.<User>listColumns(
+                                (root, cb) -> cb.treat(root, Student.class).get("parentId"),
+                                (root, cb) -> cb.treat(root, Teacher.class).get("salary")))
+                .map(userMapper::fromListItem);
+
+        // Học sinh có classDiscounts, phụ huynh có studentIds: nạp cho cả trang, mỗi loại một truy vấn
+        List<String> studentIds = userIdsWithRole(users, PredefinedRole.STUDENT_ROLE);
+        if (!studentIds.isEmpty()) {
+            Map<String, List<ClassDiscount>> discounts = KeyedValue.group(studentRepository.findClassDiscounts(studentIds));
+            users.forEach(user -> {
+                if (PredefinedRole.STUDENT_ROLE.equals(user.getRole())) {
+                    user.setClassDiscounts(discounts.getOrDefault(user.getUserId(), List.of()));
+                }
+            });
+        }
+        List<String> parentIds = userIdsWithRole(users, PredefinedRole.PARENT_ROLE);
+        if (!parentIds.isEmpty()) {
+            Map<String, List<String>> children = KeyedValue.group(parentRepository.findStudentIds(parentIds));
+            users.forEach(user -> {
+                if (PredefinedRole.PARENT_ROLE.equals(user.getRole())) {
+                    user.setStudentIds(children.getOrDefault(user.getUserId(), List.of()));
+                }
+            });
+        }
+        return users;
+    }
+
+    private static List<String> userIdsWithRole(Page<UserResponse> users, String role) {
+        return users.stream()
+                .filter(user -> role.equals(user.getRole()))
+                .map(UserResponse::getUserId)
+                .toList();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public CursorPage<UserResponse> scrollUsers(UserSearchRequest request, CursorRequest cursor, Sort sort) {
+        Sort order = UserSpecification.SCROLLABLE.apply(sort);
+        ScrollPosition position = KeysetCursor.decode(cursor.getCursor(), order, User.class);
+        return KeysetCursor.page(userRepository.scroll(request, order, position, cursor.limit()),
+                order, userMapper::toUserResponse);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -112,13 +180,11 @@ public class UserService {
 
     @PreAuthorize("hasAuthority('CHANGE_PASSWORD') || hasRole('ADMIN')")
     public void changePassword(ChangePasswordRequest request) {
-        var context = SecurityContextHolder.getContext();
-        String name = context.getAuthentication().getName();
-        User user = userRepository.findByUsername(name).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
-        if (!passwordEncoder.matches(request.getOldPassword(), user.getPassword())) {
+        User user = findCurrentUser();
+        if (!passwordHashingService.matches(request.getOldPassword(), user.getPassword())) {
             throw new AppException(ErrorCode.INVALID_PASSWORD);
         }
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
         userRepository.save(user);
     }
 
@@ -126,17 +192,14 @@ public class UserService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
         otpService.verifyOtp(email, otpCode);
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashingService.encode(newPassword));
         userRepository.save(user);
         otpService.setUsedOtp(email);
     }
 
     @PreAuthorize("hasAuthority('CHANGE_AVATAR') || hasRole('ADMIN')")
     public UserResponse changeAvatar(String avatarUrl,String publicId) {
-        var context = SecurityContextHolder.getContext();
-        String name = context.getAuthentication().getName();
-        User user = userRepository.findByUsername(name)
-                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
+        User user = findCurrentUser();
         if (user.getAvatarUrl()!=null && user.getPublicId()!=null) {
              imageUploadService.deleteImageByPublicId(user.getPublicId());
         }
@@ -144,6 +207,10 @@ public class UserService {
         user.setPublicId(publicId);
         return userMapper.toUserResponse(userRepository.save(user));
     }
-}
-
 
+    // Cần cả entity nên nạp thẳng theo username (có index) trong một truy vấn, không qua projection rồi findById
+    private User findCurrentUser() {
+        return userRepository.findByUsername(currentUserService.username())
+                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
+    }
+}
@@ -0,0 +1,75 @@
+package vn.edu.actvn.server.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.mapping.PropertyReferenceException;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Opaque continuation tokens for keyset scrolling ({@code JpaSpecificationExecutor.findBy(...).scroll(...)}).
+ * A token is the base64url JSON of the last row's sort keys (sort fields plus the id Spring Data appends) and the
+ * sort it was produced for; a token replayed with a different sort is rejected rather than silently skipping rows.
+ */
+public class KeysetCursor {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private record Token(String sort, Map<String, Object> keys) {}
+
+    public static ScrollPosition decode(String cursor, Sort sort, Class<?> domainType) {
+        if (cursor == null || cursor.isBlank()) return ScrollPosition.keyset();
+        try {
+            Token token = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), Token.class);
+            if (!sort.toString().equals(token.sort()) || token.keys() == null || token.keys().isEmpty()) {
+                throw new AppException(ErrorCode.INVALID_CURSOR);
+            }
+            // JSON làm mất kiểu (LocalDate, LocalDateTime, enum...), đổi lại theo kiểu thuộc tính của entity
+            Map<String, Object> keys = new LinkedHashMap<>();
+            token.keys().forEach((property, value) -> keys.put(property,
+                    MAPPER.convertValue(value, PropertyPath.from(property, domainType).getLeafType())));
+            return ScrollPosition.forward(keys);
+        } catch (IOException | IllegalArgumentException | PropertyReferenceException e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public static <T, R> CursorPage<R> page(Window<T> window, Sort sort, Function<? super T, ? extends R> mapper) {
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encode((KeysetScrollPosition) window.positionAt(window.size() - 1), sort)
+                : null;
+        return CursorPage.<R>builder()
+                .content(window.getContent().stream().<R>map(mapper).toList())
+                .size(window.size())
+                .hasNext(window.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static String encode(KeysetScrollPosition position, Sort sort) {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(new Token(sort.toString(), position.getKeys()));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    private KeysetCursor() {}
+}
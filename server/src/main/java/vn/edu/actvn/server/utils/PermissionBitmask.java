@@ -0,0 +1,42 @@
+package vn.edu.actvn.server.utils;
+
+import vn.edu.actvn.server.constant.Permission;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+// Mã hoá tập Permission thành bitmask (bit i = Permission có ordinal i), dạng base64url
+public class PermissionBitmask {
+
+    private static final Permission[] PERMISSIONS = Permission.values();
+
+    // Đổi khi thứ tự/tên các Permission thay đổi, token cũ sẽ bị từ chối thay vì hiểu sai quyền
+    public static final String VERSION = Integer.toHexString(
+            Arrays.hashCode(Arrays.stream(PERMISSIONS).map(Enum::name).toArray()));
+
+    public static String encode(Collection<Permission> permissions) {
+        BitSet bits = new BitSet(PERMISSIONS.length);
+        if (permissions != null) {
+            permissions.forEach(permission -> bits.set(permission.ordinal()));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+    }
+
+    public static List<Permission> decode(String bitmask) {
+        BitSet bits = BitSet.valueOf(Base64.getUrlDecoder().decode(bitmask));
+        List<Permission> permissions = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            if (i >= PERMISSIONS.length) {
+                throw new IllegalArgumentException("Unknown permission bit " + i);
+            }
+            permissions.add(PERMISSIONS[i]);
+        }
+        return permissions;
+    }
+
+    private PermissionBitmask() {}
+}
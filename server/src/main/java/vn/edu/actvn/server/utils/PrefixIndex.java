@@ -0,0 +1,98 @@
+package vn.edu.actvn.server.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index over short texts (names, usernames, class names), accent-insensitive.
+ * Each text is stored under its folded form and under every word suffix ("nguyen van an", "van an", "an"), in two
+ * sorted maps so a lookup is a range scan that stops after {@code limit} hits: matches on the whole text come before
+ * matches starting at a later word. Reads are lock-free; writers are serialized.
+ */
+public class PrefixIndex<V> {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Tách key và id để nhiều mục trùng tên vẫn có key riêng; nhỏ hơn mọi ký tự có thể xuất hiện trong text
+    private static final char SEPARATOR = '\u0000';
+
+    private final NavigableMap<String, String> leading = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, String> inner = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private record Entry<V>(V value, List<String> leadingKeys, List<String> innerKeys) {}
+
+    public synchronized void put(String id, V value, String... texts) {
+        remove(id);
+        List<String> leadingKeys = new ArrayList<>();
+        List<String> innerKeys = new ArrayList<>();
+        for (String text : texts) {
+            String folded = fold(text);
+            if (folded.isEmpty()) continue;
+            leadingKeys.add(folded + SEPARATOR + id);
+            for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+                innerKeys.add(folded.substring(i + 1) + SEPARATOR + id);
+            }
+        }
+        entries.put(id, new Entry<>(value, leadingKeys, innerKeys));
+        leadingKeys.forEach(key -> leading.put(key, id));
+        innerKeys.forEach(key -> inner.put(key, id));
+    }
+
+    public synchronized void remove(String id) {
+        Entry<V> previous = entries.remove(id);
+        if (previous == null) return;
+        previous.leadingKeys().forEach(leading::remove);
+        previous.innerKeys().forEach(inner::remove);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        leading.clear();
+        inner.clear();
+    }
+
+    public List<V> search(String prefix, int limit) {
+        String folded = fold(prefix);
+        if (folded.isEmpty() || limit <= 0) return List.of();
+
+        Map<String, V> hits = new LinkedHashMap<>();
+        collect(leading, folded, limit, hits);
+        collect(inner, folded, limit, hits);
+        return List.copyOf(hits.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void collect(NavigableMap<String, String> keys, String prefix, int limit, Map<String, V> hits) {
+        // Mọi key bắt đầu bằng prefix nằm trong [prefix, prefix + MAX_VALUE)
+        for (String id : keys.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (hits.size() >= limit) return;
+            if (hits.containsKey(id)) continue;
+            Entry<V> entry = entries.get(id);
+            if (entry != null) {
+                hits.put(id, entry.value());
+            }
+        }
+    }
+
+    // Bỏ dấu tiếng Việt (kể cả đ/Đ không tách được bằng NFD), viết thường, gộp khoảng trắng
+    public static String fold(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+}
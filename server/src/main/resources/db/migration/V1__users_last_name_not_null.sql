@@ -0,0 +1,6 @@
+-- last_name trước đây là @Formula: điền cho các dòng có sẵn, cùng quy tắc với User.lastNameOf(), rồi cấm null vì nó
+-- là khoá keyset của UserSpecification.SCROLLABLE. Entity để cột nullable vì ddl-auto chỉ thêm được cột NOT NULL
+-- (không có default) vào bảng rỗng
+UPDATE users SET last_name = coalesce(substring(btrim(full_name) from '[^ ]*$'), '') WHERE last_name IS NULL;
+
+ALTER TABLE users ALTER COLUMN last_name SET NOT NULL;
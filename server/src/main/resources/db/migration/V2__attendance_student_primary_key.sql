@@ -0,0 +1,10 @@
+-- attendance_student trước đây là @ElementCollection không có khoá: bỏ dòng trùng (giữ dòng ghi sau) rồi thêm khoá
+-- chính. Bảng do ddl-auto tạo mới đã có khoá chính nên không làm gì
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'attendance_student'::regclass AND contype = 'p') THEN
+        DELETE FROM attendance_student a USING attendance_student b
+        WHERE a.attendance_id = b.attendance_id AND a.student_id = b.student_id AND a.ctid < b.ctid;
+        ALTER TABLE attendance_student ADD PRIMARY KEY (attendance_id, student_id);
+    END IF;
+END $$;
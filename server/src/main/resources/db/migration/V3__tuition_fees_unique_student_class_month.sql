@@ -0,0 +1,51 @@
+-- TuitionFeeRepository.upsert/upsertAll cần khoá (student_id, class_id, fee_year_month). Bảng có sẵn từ trước có thể
+-- có khoản trùng: gộp chúng vào khoản tạo sớm nhất (chuyển thanh toán sang, cộng số đã đóng), trừ/cộng lại phần của
+-- chúng trong monthly_finance_rollup rồi thêm khoá. Bảng do ddl-auto tạo (hoặc cập nhật được) đã có khoá thì bỏ qua
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_tuition_fees_student_class_month') THEN
+        CREATE TEMP TABLE tuition_fee_duplicates ON COMMIT DROP AS
+        SELECT tuition_fee_id, fee_year_month,
+               first_value(tuition_fee_id) OVER (PARTITION BY student_id, class_id, fee_year_month
+                                                 ORDER BY created_at NULLS LAST, tuition_fee_id) AS keep_id
+        FROM tuition_fees
+        WHERE (student_id, class_id, fee_year_month) IN (
+            SELECT student_id, class_id, fee_year_month FROM tuition_fees
+            GROUP BY student_id, class_id, fee_year_month HAVING count(*) > 1);
+
+        UPDATE monthly_finance_rollup r
+        SET tuition_amount = r.tuition_amount - t.amount,
+            tuition_paid = r.tuition_paid - t.paid,
+            tuition_remaining = r.tuition_remaining - t.remaining
+        FROM (SELECT f.fee_year_month, SUM(f.amount) AS amount, SUM(COALESCE(f.paid_amount, 0)) AS paid,
+                     SUM(f.remaining_amount) AS remaining
+              FROM tuition_fees f JOIN tuition_fee_duplicates d USING (tuition_fee_id)
+              GROUP BY f.fee_year_month) t
+        WHERE r.period_month = t.fee_year_month;
+
+        UPDATE payments p SET tuition_fee_id = d.keep_id
+        FROM tuition_fee_duplicates d
+        WHERE p.tuition_fee_id = d.tuition_fee_id AND d.tuition_fee_id <> d.keep_id;
+        UPDATE tuition_fees k SET paid_amount = s.paid, remaining_amount = k.amount - s.paid
+        FROM (SELECT d.keep_id, SUM(COALESCE(f.paid_amount, 0)) AS paid
+              FROM tuition_fees f JOIN tuition_fee_duplicates d USING (tuition_fee_id)
+              GROUP BY d.keep_id) s
+        WHERE k.tuition_fee_id = s.keep_id;
+        DELETE FROM tuition_fees f USING tuition_fee_duplicates d
+        WHERE f.tuition_fee_id = d.tuition_fee_id AND d.tuition_fee_id <> d.keep_id;
+
+        UPDATE monthly_finance_rollup r
+        SET tuition_amount = r.tuition_amount + t.amount,
+            tuition_paid = r.tuition_paid + t.paid,
+            tuition_remaining = r.tuition_remaining + t.remaining
+        FROM (SELECT f.fee_year_month, SUM(f.amount) AS amount, SUM(COALESCE(f.paid_amount, 0)) AS paid,
+                     SUM(f.remaining_amount) AS remaining
+              FROM tuition_fees f JOIN (SELECT DISTINCT keep_id FROM tuition_fee_duplicates) d
+                  ON f.tuition_fee_id = d.keep_id
+              GROUP BY f.fee_year_month) t
+        WHERE r.period_month = t.fee_year_month;
+
+        ALTER TABLE tuition_fees ADD CONSTRAINT uk_tuition_fees_student_class_month
+            UNIQUE (student_id, class_id, fee_year_month);
+    END IF;
+END $$;
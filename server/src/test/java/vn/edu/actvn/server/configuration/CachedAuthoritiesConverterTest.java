@@ -0,0 +1,89 @@
+package vn.edu.actvn.server.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import vn.edu.actvn.server.constant.Permission;
+import vn.edu.actvn.server.utils.PermissionBitmask;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A token carrying the compact {@code role}/{@code perm}/{@code pv} claims must grant exactly what the legacy
+ * {@code scope} claim grants for the same role, with {@code ROLE_} first.
+ */
+class CachedAuthoritiesConverterTest {
+    static final Set<Permission> TEACHER_PERMISSIONS =
+            EnumSet.of(Permission.CHANGE_PASSWORD, Permission.CLASS_READ, Permission.STUDENT_READ_ALL);
+
+    CachedAuthoritiesConverter converter = new CachedAuthoritiesConverter();
+
+    @Test
+    void compactClaimsGrantSameAuthoritiesAsScope() {
+        Collection<GrantedAuthority> compact = converter.convert(compactToken("TEACHER", TEACHER_PERMISSIONS,
+                PermissionBitmask.VERSION));
+        Collection<GrantedAuthority> scope = converter.convert(scopeToken("ROLE_TEACHER "
+                + TEACHER_PERMISSIONS.stream().map(Permission::getPermission).collect(Collectors.joining(" "))));
+
+        assertThat(names(compact)).containsExactlyInAnyOrderElementsOf(names(scope));
+        assertThat(compact.iterator().next().getAuthority()).isEqualTo("ROLE_TEACHER");
+    }
+
+    @Test
+    void sameClaimsShareOneAuthorityList() {
+        Collection<GrantedAuthority> first = converter.convert(compactToken("TEACHER", TEACHER_PERMISSIONS,
+                PermissionBitmask.VERSION));
+        Collection<GrantedAuthority> second = converter.convert(compactToken("TEACHER", TEACHER_PERMISSIONS,
+                PermissionBitmask.VERSION));
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void tokenFromAnotherPermissionLayoutIsRejected() {
+        assertThatThrownBy(() -> converter.convert(compactToken("TEACHER", TEACHER_PERMISSIONS, "stale")))
+                .isInstanceOf(InvalidBearerTokenException.class);
+    }
+
+    @Test
+    void malformedBitmaskIsRejected() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "HS512")
+                .claim(CachedAuthoritiesConverter.ROLE_CLAIM, "TEACHER")
+                .claim(CachedAuthoritiesConverter.PERMISSION_CLAIM, "not*base64")
+                .claim(CachedAuthoritiesConverter.PERMISSION_VERSION_CLAIM, PermissionBitmask.VERSION)
+                .build();
+
+        assertThatThrownBy(() -> converter.convert(jwt)).isInstanceOf(InvalidBearerTokenException.class);
+    }
+
+    @Test
+    void tokenWithoutAuthoritiesGrantsNothing() {
+        assertThat(converter.convert(Jwt.withTokenValue("token").header("alg", "HS512").subject("u").build()))
+                .isEmpty();
+    }
+
+    private static Jwt compactToken(String role, Set<Permission> permissions, String version) {
+        return Jwt.withTokenValue("token").header("alg", "HS512")
+                .claim(CachedAuthoritiesConverter.ROLE_CLAIM, role)
+                .claim(CachedAuthoritiesConverter.PERMISSION_CLAIM, PermissionBitmask.encode(permissions))
+                .claim(CachedAuthoritiesConverter.PERMISSION_VERSION_CLAIM, version)
+                .build();
+    }
+
+    private static Jwt scopeToken(String scope) {
+        return Jwt.withTokenValue("token").header("alg", "HS512")
+                .claim(CachedAuthoritiesConverter.SCOPE_CLAIM, scope)
+                .build();
+    }
+
+    private static Set<String> names(Collection<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+}
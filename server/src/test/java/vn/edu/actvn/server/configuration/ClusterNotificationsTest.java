@@ -0,0 +1,70 @@
+package vn.edu.actvn.server.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The shared LISTEN connection must bypass a transaction-mode pooler, and each subscriber only sees the messages
+ * other nodes published on its channel.
+ */
+class ClusterNotificationsTest {
+    ClusterNotifications notifications;
+    List<String> received = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        notifications = new ClusterNotifications(null, null);
+        ReflectionTestUtils.setField(notifications, "enabled", true);
+        notifications.subscribe("token_revoked", received::add);
+    }
+
+    @Test
+    void listensOnNeonDirectEndpointInsteadOfPooler() {
+        assertThat(ClusterNotifications.listenUrl("",
+                "jdbc:postgresql://ep-icy-rain-a1g2wy54-pooler.ap-southeast-1.aws.neon.tech:5432/neondb?sslmode=require"))
+                .isEqualTo("jdbc:postgresql://ep-icy-rain-a1g2wy54.ap-southeast-1.aws.neon.tech:5432/neondb?sslmode=require");
+    }
+
+    @Test
+    void prefersConfiguredUrl() {
+        assertThat(ClusterNotifications.listenUrl("jdbc:postgresql://db:5432/app",
+                "jdbc:postgresql://ep-x-pooler.neon.tech/app")).isEqualTo("jdbc:postgresql://db:5432/app");
+        assertThat(ClusterNotifications.listenUrl(null, "jdbc:postgresql://localhost:5432/app"))
+                .isEqualTo("jdbc:postgresql://localhost:5432/app");
+    }
+
+    @Test
+    void deliversMessagesFromOtherNodesOnly() {
+        notifications.dispatch("token_revoked", "other-node|jti:123");
+        notifications.dispatch("token_revoked", notifications.envelope("jti:456"));
+
+        assertThat(received).containsExactly("jti:123");
+    }
+
+    // Thông báo từ phiên bản cũ (không có id node) hoặc kênh không ai đăng ký bị bỏ qua, không làm dừng vòng lặp
+    @Test
+    void ignoresMalformedMessagesAndFailingSubscribers() {
+        notifications.subscribe("search_index_changed", message -> {
+            throw new IllegalStateException("boom");
+        });
+
+        notifications.dispatch("token_revoked", "jti:123");
+        notifications.dispatch("unknown", "other-node|x");
+        notifications.dispatch("search_index_changed", "other-node|USER:1");
+
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void rejectsChannelNamesThatCannotBeListenedTo() {
+        assertThatThrownBy(() -> notifications.subscribe("token-revoked; DROP TABLE users", received::add))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
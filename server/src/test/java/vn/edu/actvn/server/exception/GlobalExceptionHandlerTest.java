@@ -0,0 +1,48 @@
+package vn.edu.actvn.server.exception;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.dto.response.ApiResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Errors that only mean "not now" tell the client when to retry.
+ */
+class GlobalExceptionHandlerTest {
+    GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(handler, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.setField(handler, "recalculationRetryAfterSeconds", 3L);
+    }
+
+    @Test
+    void recalculatingFeeIsServiceUnavailableWithRetryAfter() {
+        ResponseEntity<ApiResponse> response =
+                handler.handlingAppException(new AppException(ErrorCode.TUITION_FEE_RECALCULATING));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+    }
+
+    @Test
+    void tooManyRequestsKeepsItsRetryAfter() {
+        ResponseEntity<ApiResponse> response = handler.handlingAppException(new AppException(ErrorCode.TOO_MANY_REQUESTS));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+
+    @Test
+    void otherErrorsHaveNoRetryAfter() {
+        ResponseEntity<ApiResponse> response = handler.handlingAppException(new AppException(ErrorCode.USER_NOT_EXISTED));
+
+        assertThat(response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER)).isFalse();
+    }
+}
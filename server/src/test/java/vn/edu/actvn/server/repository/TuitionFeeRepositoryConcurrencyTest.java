@@ -0,0 +1,225 @@
+package vn.edu.actvn.server.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.edu.actvn.server.dto.response.tuitionfee.TuitionFeeUpsertResult;
+import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.entity.Student;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two transactions creating the same tuition fee at once: the one that waited on the other's insert gets no row back
+ * from its first upsert and must call it again, which then updates the committed row instead of failing or creating a
+ * second one. Needs PostgreSQL ({@code ON CONFLICT}, {@code unnest}); {@code TEST_DATABASE_URL} must point to a
+ * throwaway database because the schema is created and dropped by Hibernate.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfEnvironmentVariable(named = "TEST_DATABASE_URL", matches = ".+")
+// Mỗi bước tự commit trong transaction riêng, như hai request chạy song song
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TuitionFeeRepositoryConcurrencyTest {
+    static final LocalDate MONTH = LocalDate.of(2026, 10, 1);
+    static final Duration LOCK_WAIT_TIMEOUT = Duration.ofSeconds(10);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_DATABASE_URL"));
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("TEST_DATABASE_USERNAME"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("TEST_DATABASE_PASSWORD"), ""));
+    }
+
+    @Autowired
+    TuitionFeeRepository tuitionFeeRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    ClassRepository classRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transactionTemplate;
+
+    String classId;
+
+    String firstStudentId;
+
+    String secondStudentId;
+
+    @BeforeEach
+    void seed() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            firstStudentId = studentRepository.save(Student.builder().username("first").fullName("Học viên Một").build())
+                    .getUserId();
+            secondStudentId = studentRepository.save(Student.builder().username("second").fullName("Học viên Hai").build())
+                    .getUserId();
+            classId = classRepository.save(EntityClass.builder()
+                    .className("Lớp thử")
+                    .year(2026)
+                    .grade(1)
+                    .roomName("P1")
+                    .status(EntityClass.Status.OPEN)
+                    .unitPrice(BigDecimal.valueOf(100))
+                    .build()).getClassId();
+        });
+    }
+
+    @AfterEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM tuition_fees");
+        classRepository.deleteAll();
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void upsertBlockedByConcurrentInsertIsRetried() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            upsert(firstStudentId, "100");
+            inserted.countDown();
+            await(release);
+        }));
+        assertThat(inserted.await(LOCK_WAIT_TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Attempts> second = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            Optional<TuitionFeeUpsertResult> firstAttempt = upsert(firstStudentId, "200");
+            // Cùng cách gọi lại như TuitionFeeService.createTuitionFee
+            return new Attempts(firstAttempt.isPresent(), firstAttempt.or(() -> upsert(firstStudentId, "200")));
+        }));
+        awaitLockWaiter();
+        release.countDown();
+        first.get(LOCK_WAIT_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        Attempts attempts = second.get(LOCK_WAIT_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        assertThat(attempts.firstReturnedRow()).isFalse();
+        TuitionFeeUpsertResult result = attempts.result().orElseThrow();
+        assertThat(result.getAmount()).isEqualByComparingTo("200");
+        assertThat(result.getPreviousAmount()).isEqualByComparingTo("100");
+        assertThat(result.getRemainingAmount()).isEqualByComparingTo("200");
+        assertThat(countFees()).isEqualTo(1);
+    }
+
+    @Test
+    void batchUpsertReportsStudentsInsertedConcurrently() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            upsert(firstStudentId, "100");
+            inserted.countDown();
+            await(release);
+        }));
+        assertThat(inserted.await(LOCK_WAIT_TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<List<List<TuitionFeeUpsertResult>>> second = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> List.of(
+                        upsertAll(List.of(firstStudentId, secondStudentId), "300"),
+                        upsertAll(List.of(firstStudentId), "300"))));
+        awaitLockWaiter();
+        release.countDown();
+        first.get(LOCK_WAIT_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        List<List<TuitionFeeUpsertResult>> rounds = second.get(LOCK_WAIT_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        // Lượt đầu chỉ trả về học sinh không bị tranh chấp; lượt gọi lại cập nhật khoản vừa được chèn
+        assertThat(rounds.get(0)).extracting(TuitionFeeUpsertResult::getStudentId).containsExactly(secondStudentId);
+        assertThat(rounds.get(1)).singleElement().satisfies(result -> {
+            assertThat(result.getStudentId()).isEqualTo(firstStudentId);
+            assertThat(result.getPreviousAmount()).isEqualByComparingTo("100");
+            assertThat(result.getAmount()).isEqualByComparingTo("300");
+        });
+        assertThat(countFees()).isEqualTo(2);
+    }
+
+    @Test
+    void recalculationBelowPaidAmountLeavesNothingOwed() {
+        transactionTemplate.executeWithoutResult(status -> upsert(firstStudentId, "100"));
+        jdbcTemplate.update("UPDATE tuition_fees SET paid_amount = 80, remaining_amount = 20");
+
+        TuitionFeeUpsertResult single = transactionTemplate.execute(status -> upsert(firstStudentId, "50")).orElseThrow();
+        TuitionFeeUpsertResult batch = transactionTemplate.execute(status -> upsertAll(List.of(firstStudentId), "60"))
+                .getFirst();
+
+        assertThat(single.getRemainingAmount()).isEqualByComparingTo("0");
+        assertThat(single.getPaidAmount()).isEqualByComparingTo("80");
+        assertThat(batch.getRemainingAmount()).isEqualByComparingTo("0");
+        assertThat(batch.getPaidAmount()).isEqualByComparingTo("80");
+    }
+
+    private Optional<TuitionFeeUpsertResult> upsert(String studentId, String amount) {
+        return tuitionFeeRepository.upsert(UUID.randomUUID().toString(), studentId, classId, MONTH,
+                new BigDecimal(amount), LocalDateTime.now());
+    }
+
+    private List<TuitionFeeUpsertResult> upsertAll(List<String> studentIds, String amount) {
+        return tuitionFeeRepository.upsertAll(
+                studentIds.stream().map(studentId -> UUID.randomUUID().toString()).toArray(String[]::new),
+                studentIds.toArray(String[]::new),
+                studentIds.stream().map(studentId -> new BigDecimal(amount)).toArray(BigDecimal[]::new),
+                classId, MONTH, LocalDateTime.now());
+    }
+
+    // Đợi tới khi transaction thứ hai thật sự chờ khoá dòng do transaction thứ nhất chèn
+    private void awaitLockWaiter() throws InterruptedException {
+        long deadline = System.nanoTime() + LOCK_WAIT_TIMEOUT.toNanos();
+        while (jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_stat_activity
+                WHERE datname = current_database() AND wait_event_type = 'Lock'
+                """, Integer.class) == 0) {
+            assertThat(System.nanoTime() - deadline).as("second transaction never blocked").isNegative();
+            Thread.sleep(20);
+        }
+    }
+
+    private int countFees() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM tuition_fees", Integer.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Attempts(boolean firstReturnedRow, Optional<TuitionFeeUpsertResult> result) {
+    }
+}
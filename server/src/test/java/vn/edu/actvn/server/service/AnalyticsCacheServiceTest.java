@@ -0,0 +1,88 @@
+package vn.edu.actvn.server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.dto.response.dashboard.AdminAnalyticsResponse;
+import vn.edu.actvn.server.repository.AnalyticsSnapshotRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The live part of the analytics dashboard (counts that depend on the present state) is computed at most once per
+ * {@code dashboard.analytics.live-ttl} and dropped when analytics data changes.
+ */
+@ExtendWith(MockitoExtension.class)
+class AnalyticsCacheServiceTest {
+    static final int CURRENT_YEAR = LocalDate.now().getYear();
+
+    @Mock
+    AnalyticsSnapshotRepository analyticsSnapshotRepository;
+
+    AnalyticsCacheService cacheService;
+    AtomicInteger loads = new AtomicInteger();
+    IntFunction<AdminAnalyticsResponse> loader = year -> AdminAnalyticsResponse.builder()
+            .currentYear(year)
+            .studentCount(loads.incrementAndGet())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        cacheService = new AnalyticsCacheService(analyticsSnapshotRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(cacheService, "currentYearTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cacheService, "liveTtl", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void reusesLiveResponseWithinTtl() {
+        AdminAnalyticsResponse first = cacheService.getLive(CURRENT_YEAR, loader);
+        AdminAnalyticsResponse second = cacheService.getLive(CURRENT_YEAR, loader);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void recomputesLiveResponseOnceTtlHasPassed() {
+        ReflectionTestUtils.setField(cacheService, "liveTtl", Duration.ZERO);
+
+        cacheService.getLive(CURRENT_YEAR, loader);
+        cacheService.getLive(CURRENT_YEAR, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    // Số liệu hiện tại dùng chung cho mọi năm: sự kiện của một năm bỏ bản đầy đủ của tất cả
+    @Test
+    void analyticsChangeDropsLiveResponsesOfEveryYear() {
+        cacheService.getLive(CURRENT_YEAR, loader);
+        cacheService.getLive(CURRENT_YEAR + 1, loader);
+
+        cacheService.evict(CURRENT_YEAR);
+        cacheService.getLive(CURRENT_YEAR, loader);
+        cacheService.getLive(CURRENT_YEAR + 1, loader);
+
+        assertThat(loads).hasValue(4);
+    }
+
+    // Kết quả bắt đầu tính trước khi dữ liệu đổi không được giữ lại
+    @Test
+    void doesNotKeepResponseComputedBeforeEviction() {
+        cacheService.getLive(CURRENT_YEAR, year -> {
+            cacheService.evict(year);
+            return loader.apply(year);
+        });
+        cacheService.getLive(CURRENT_YEAR, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,116 @@
+package vn.edu.actvn.server.service;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.constant.TokenPolicy;
+import vn.edu.actvn.server.dto.request.auth.IntrospectRequest;
+import vn.edu.actvn.server.dto.request.auth.LogoutRequest;
+import vn.edu.actvn.server.mapper.UserMapper;
+import vn.edu.actvn.server.repository.InvalidatedTokenRepository;
+import vn.edu.actvn.server.repository.ParentRepository;
+import vn.edu.actvn.server.repository.StudentRepository;
+import vn.edu.actvn.server.repository.TeacherRepository;
+import vn.edu.actvn.server.repository.UserRepository;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bearer token checks: only HS512 tokens signed with our key are accepted, expiry allows
+ * {@link TokenPolicy#CLOCK_SKEW}, and a logged-out token is rejected for the whole window in which it would otherwise
+ * still be accepted.
+ */
+@ExtendWith(MockitoExtension.class)
+class AuthenticationServiceTest {
+    static final String SIGNER_KEY = "0123456789abcdef".repeat(4);
+
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    UserMapper userMapper;
+    @Mock
+    TeacherRepository teacherRepository;
+    @Mock
+    StudentRepository studentRepository;
+    @Mock
+    ParentRepository parentRepository;
+    @Mock
+    PasswordHashingService passwordHashingService;
+    @Mock
+    InvalidatedTokenRepository invalidatedTokenRepository;
+    @Mock
+    ClusterNotifications clusterNotifications;
+
+    AuthenticationService authenticationService;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        authenticationService = new AuthenticationService(userRepository,
+                new TokenRevocationIndex(invalidatedTokenRepository, clusterNotifications), userMapper, teacherRepository,
+                studentRepository, parentRepository, passwordHashingService);
+        ReflectionTestUtils.setField(authenticationService, "SIGNER_KEY", SIGNER_KEY);
+        authenticationService.initJws();
+    }
+
+    @Test
+    void acceptsTokenInsideClockSkewUntilItIsRevoked() throws Exception {
+        Instant expiry = Instant.now().minus(TokenPolicy.CLOCK_SKEW.dividedBy(2));
+        String accessToken = token(JWSAlgorithm.HS512, SIGNER_KEY, expiry);
+        String refreshToken = token(JWSAlgorithm.HS512, SIGNER_KEY, expiry);
+        assertThat(isValid(accessToken)).isTrue();
+
+        authenticationService.logout(new LogoutRequest(accessToken, refreshToken));
+
+        assertThat(isValid(accessToken)).isFalse();
+        assertThat(isValid(refreshToken)).isFalse();
+    }
+
+    @Test
+    void rejectsTokenPastClockSkew() throws Exception {
+        Instant expiry = Instant.now().minus(TokenPolicy.CLOCK_SKEW).minusSeconds(1);
+
+        assertThat(isValid(token(JWSAlgorithm.HS512, SIGNER_KEY, expiry))).isFalse();
+    }
+
+    // MACVerifier chấp nhận mọi HMAC: token HS256 ký đúng khoá vẫn phải bị từ chối
+    @Test
+    void rejectsOtherHmacAlgorithms() throws Exception {
+        Instant expiry = Instant.now().plusSeconds(600);
+
+        assertThat(isValid(token(JWSAlgorithm.HS512, SIGNER_KEY, expiry))).isTrue();
+        assertThat(isValid(token(JWSAlgorithm.HS256, SIGNER_KEY, expiry))).isFalse();
+        assertThat(isValid(token(JWSAlgorithm.HS512, "fedcba9876543210".repeat(4), expiry))).isFalse();
+    }
+
+    private boolean isValid(String token) throws Exception {
+        return authenticationService.introspect(new IntrospectRequest(token)).isValid();
+    }
+
+    static String token(JWSAlgorithm algorithm, String key, Instant expiry) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("student")
+                .issuer("actvn.edu.vn")
+                .jwtID(UUID.randomUUID().toString())
+                .expirationTime(Date.from(expiry))
+                .claim("type", "access")
+                .build();
+        JWSObject jwsObject = new JWSObject(new JWSHeader(algorithm), new Payload(claims.toJSONObject()));
+        jwsObject.sign(new MACSigner(key.getBytes()));
+        return jwsObject.serialize();
+    }
+}
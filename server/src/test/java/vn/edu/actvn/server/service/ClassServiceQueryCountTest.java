@@ -0,0 +1,136 @@
+package vn.edu.actvn.server.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.configuration.SecondLevelCacheInvalidator;
+import vn.edu.actvn.server.dto.request.CursorRequest;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.dto.response.entityclass.ClassResponse;
+import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.entity.Teacher;
+import vn.edu.actvn.server.mapper.ClassMapperImpl;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listing a page of classes must cost a fixed number of statements whatever the page size: the roster and schedule
+ * days of the whole page are loaded together instead of once per class.
+ */
+@DataJpaTest(properties = {
+        // year/month là từ khoá của H2
+        "spring.datasource.url=jdbc:h2:mem:class-listing;MODE=PostgreSQL;NON_KEYWORDS=YEAR,MONTH,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Migration viết cho PostgreSQL, bảng ở đây do ddl-auto tạo
+        "spring.flyway.enabled=false",
+        // Đếm truy vấn thật tới DB, không để cache cấp 2 che mất
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ClassService.class, ProjectionQueries.class, ClassMapperImpl.class, SecondLevelCacheInvalidator.class,
+        ClusterNotifications.class})
+class ClassServiceQueryCountTest {
+    static final int CLASSES = 20;
+    static final int STUDENTS_PER_CLASS = 3;
+    static final int TEACHERS = 4;
+
+    @Autowired
+    ClassService classService;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        List<Teacher> teachers = new ArrayList<>();
+        for (int t = 0; t < TEACHERS; t++) {
+            Teacher teacher = Teacher.builder().username("teacher" + t).fullName("Giáo viên " + t).build();
+            entityManager.persist(teacher);
+            teachers.add(teacher);
+        }
+        for (int c = 0; c < CLASSES; c++) {
+            List<Student> students = new ArrayList<>();
+            for (int s = 0; s < STUDENTS_PER_CLASS; s++) {
+                Student student = Student.builder().username("student" + c + "_" + s).fullName("Học viên " + s).build();
+                entityManager.persist(student);
+                students.add(student);
+            }
+            entityManager.persist(EntityClass.builder()
+                    .className("Lớp " + c)
+                    .year(2025)
+                    .grade(c % 5 + 1)
+                    .roomName("P" + c)
+                    .status(EntityClass.Status.OPEN)
+                    .unitPrice(BigDecimal.valueOf(100000))
+                    .teacher(teachers.get(c % TEACHERS))
+                    .students(students)
+                    .daysOfWeek(new ArrayList<>(List.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY)))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    // Trang dữ liệu + COUNT + danh sách học viên + lịch học của cả trang
+    @ParameterizedTest
+    @ValueSource(ints = {5, CLASSES})
+    void getClassesRunsFixedNumberOfStatements(int pageSize) {
+        Page<ClassResponse> page = classService.getClasses(new ClassSearchRequest(), PageRequest.of(0, pageSize));
+
+        assertThat(page.getContent()).hasSize(pageSize)
+                .allSatisfy(entityClass -> {
+                    assertThat(entityClass.getTeacherId()).isNotNull();
+                    assertThat(entityClass.getStudentIds()).hasSize(STUDENTS_PER_CLASS);
+                    assertThat(entityClass.getDaysOfWeek()).hasSize(2);
+                });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    // Trang lớp kèm giáo viên (fetch join) + học viên theo lô + lịch học theo lô
+    @ParameterizedTest
+    @ValueSource(ints = {5, CLASSES})
+    void scrollClassesRunsFixedNumberOfStatements(int pageSize) {
+        CursorPage<ClassResponse> page = classService.scrollClasses(new ClassSearchRequest(),
+                CursorRequest.builder().size(pageSize).build(), Sort.unsorted());
+
+        assertThat(page.getContent()).hasSize(pageSize)
+                .allSatisfy(entityClass -> {
+                    assertThat(entityClass.getTeacherId()).isNotNull();
+                    assertThat(entityClass.getStudentIds()).hasSize(STUDENTS_PER_CLASS);
+                    assertThat(entityClass.getDaysOfWeek()).hasSize(2);
+                });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,157 @@
+package vn.edu.actvn.server.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.constant.PredefinedRole;
+import vn.edu.actvn.server.dto.response.user.CurrentUser;
+import vn.edu.actvn.server.event.UserChangedEvent;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+import vn.edu.actvn.server.repository.TeacherPaymentRepository;
+import vn.edu.actvn.server.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The current user is cached per username for a short TTL; every user update or delete, on this node or another one,
+ * must drop it so a deleted user or a changed role is not served from the cache.
+ */
+@ExtendWith(MockitoExtension.class)
+class CurrentUserServiceTest {
+    static final CurrentUser TEACHER = new CurrentUser("t1", "teacher", PredefinedRole.TEACHER_ROLE);
+    static final CurrentUser ADMIN = new CurrentUser("a1", "admin", PredefinedRole.ADMIN_ROLE);
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    ClusterNotifications clusterNotifications;
+
+    CurrentUserService currentUserService;
+
+    ClusterNotifications.Subscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        currentUserService = new CurrentUserService(userRepository, clusterNotifications);
+        ReflectionTestUtils.setField(currentUserService, "cacheTtl", Duration.ofMinutes(1));
+        currentUserService.init();
+
+        ArgumentCaptor<ClusterNotifications.Subscriber> captor = ArgumentCaptor.forClass(ClusterNotifications.Subscriber.class);
+        verify(clusterNotifications).subscribe(eq(CurrentUserService.CHANNEL), captor.capture());
+        subscriber = captor.getValue();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cachedUserIsServedWithoutQuery() {
+        signIn(TEACHER);
+
+        assertThat(currentUserService.get()).isEqualTo(TEACHER);
+        assertThat(currentUserService.get()).isEqualTo(TEACHER);
+
+        verify(userRepository, times(1)).findCurrentUserByUsername("teacher");
+    }
+
+    @Test
+    void localChangeEvictsAndIsPublishedToOtherNodes() {
+        signIn(TEACHER);
+        currentUserService.get();
+
+        currentUserService.onUserChanged(new UserChangedEvent("t1"));
+        currentUserService.get();
+
+        verify(userRepository, times(2)).findCurrentUserByUsername("teacher");
+        verify(clusterNotifications).publish(CurrentUserService.CHANNEL, "t1");
+    }
+
+    @Test
+    void changeFromAnotherNodeEvictsOnlyThatUser() {
+        signIn(TEACHER);
+        currentUserService.get();
+        signIn(ADMIN);
+        currentUserService.get();
+
+        subscriber.onMessage("t1");
+        currentUserService.get();
+        signIn(TEACHER);
+        currentUserService.get();
+
+        verify(userRepository, times(1)).findCurrentUserByUsername("admin");
+        verify(userRepository, times(2)).findCurrentUserByUsername("teacher");
+    }
+
+    @Test
+    void reconnectingDropsEveryCachedUser() {
+        signIn(TEACHER);
+        currentUserService.get();
+
+        subscriber.onConnected(true);
+        currentUserService.get();
+
+        verify(userRepository, times(2)).findCurrentUserByUsername("teacher");
+    }
+
+    @Test
+    void deletedUserIsRejected() {
+        signIn(TEACHER);
+        currentUserService.get();
+        when(userRepository.findCurrentUserByUsername("teacher")).thenReturn(Optional.empty());
+
+        currentUserService.onUserChanged(new UserChangedEvent("t1"));
+
+        assertThatThrownBy(currentUserService::get)
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.USER_NOT_EXISTED);
+    }
+
+    @Test
+    void teacherPaymentsAreOnlyListedForTeachers() {
+        TeacherPaymentRepository teacherPaymentRepository = mock(TeacherPaymentRepository.class);
+        TeacherPaymentService teacherPaymentService = new TeacherPaymentService(teacherPaymentRepository, null, null,
+                currentUserService, null);
+        signIn(ADMIN);
+
+        assertThatThrownBy(() -> teacherPaymentService.getByTeacher(null, null, Pageable.unpaged()))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.USER_NOT_EXISTED);
+        verify(teacherPaymentRepository, never()).search(any(), any());
+    }
+
+    private void signIn(CurrentUser user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.username(), null, List.of()));
+        // Lenient: vài test đổi kết quả sau lần gọi đầu
+        lenient().when(userRepository.findCurrentUserByUsername(user.username()))
+                .thenReturn(Optional.of(user));
+    }
+}
@@ -0,0 +1,296 @@
+package vn.edu.actvn.server.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.configuration.SecondLevelCacheInvalidator;
+import vn.edu.actvn.server.constant.PredefinedRole;
+import vn.edu.actvn.server.dto.request.entityclass.ClassSearchRequest;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
+import vn.edu.actvn.server.entity.ClassDiscount;
+import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.entity.Parent;
+import vn.edu.actvn.server.entity.Role;
+import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.entity.Teacher;
+import vn.edu.actvn.server.entity.User;
+import vn.edu.actvn.server.mapper.ClassMapper;
+import vn.edu.actvn.server.mapper.ClassMapperImpl;
+import vn.edu.actvn.server.mapper.UserMapper;
+import vn.edu.actvn.server.mapper.UserMapperImpl;
+import vn.edu.actvn.server.repository.ClassRepository;
+import vn.edu.actvn.server.repository.ParentRepository;
+import vn.edu.actvn.server.repository.ProjectionQueries;
+import vn.edu.actvn.server.repository.StudentRepository;
+import vn.edu.actvn.server.repository.TeacherRepository;
+import vn.edu.actvn.server.repository.UserRepository;
+import vn.edu.actvn.server.repository.specification.ClassSpecification;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The listings read through {@link ProjectionQueries} must return exactly what loading the entities with the same
+ * specification and mapping them did: same rows in the same order, same totals, same fields, including the
+ * collections loaded per page and rows that have none.
+ */
+@DataJpaTest(properties = {
+        // year/month là từ khoá của H2
+        "spring.datasource.url=jdbc:h2:mem:listing-projection;MODE=PostgreSQL;NON_KEYWORDS=YEAR,MONTH,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // Migration viết cho PostgreSQL, bảng ở đây do ddl-auto tạo
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StudentService.class, TeacherService.class, ParentService.class, UserService.class, ClassService.class,
+        ProjectionQueries.class, UserMapperImpl.class, ClassMapperImpl.class, SecondLevelCacheInvalidator.class,
+        ClusterNotifications.class})
+class ListingProjectionTest {
+    // f_unaccent do DatabaseIndexInitializer tạo trên PostgreSQL; ở H2 thay bằng hàm Java tương đương
+    static final String FOLD_FUNCTION = """
+            CREATE ALIAS IF NOT EXISTS f_unaccent AS '
+            String unaccent(String value) {
+                if (value == null) return null;
+                return java.text.Normalizer.normalize(value, java.text.Normalizer.Form.NFD)
+                        .replaceAll("\\\\p{M}", "").replace("đ", "d").replace("Đ", "D");
+            }'
+            """;
+
+    @Autowired
+    StudentService studentService;
+
+    @Autowired
+    TeacherService teacherService;
+
+    @Autowired
+    ParentService parentService;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    ClassService classService;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    TeacherRepository teacherRepository;
+
+    @Autowired
+    ParentRepository parentRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ClassRepository classRepository;
+
+    @Autowired
+    UserMapper userMapper;
+
+    @Autowired
+    ClassMapper classMapper;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @MockitoBean
+    PasswordEncoder passwordEncoder;
+
+    @MockitoBean
+    PasswordHashingService passwordHashingService;
+
+    @MockitoBean
+    CurrentUserService currentUserService;
+
+    @MockitoBean
+    ImageUploadService imageUploadService;
+
+    @MockitoBean
+    OtpService otpService;
+
+    static Stream<Arguments> userListings() {
+        List<UserSearchRequest> requests = List.of(
+                new UserSearchRequest(),
+                // Không có sort: xếp theo độ liên quan của tên, "an" khớp cả "Ân", "Ánh", "Lan"
+                UserSearchRequest.builder().fullName("an").build(),
+                UserSearchRequest.builder().email("MAIL.VN").build());
+        List<Pageable> pages = List.of(
+                PageRequest.of(0, 2),
+                PageRequest.of(1, 2),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "fullName")),
+                PageRequest.of(0, 10, Sort.by("dob").and(Sort.by(Sort.Direction.DESC, "username"))));
+        return requests.stream().flatMap(request -> pages.stream().map(page -> Arguments.of(request, page)));
+    }
+
+    static Stream<Pageable> allUsers() {
+        return Stream.of(PageRequest.of(0, 4, Sort.by("username")), PageRequest.of(1, 4, Sort.by("username")),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt", "userId")));
+    }
+
+    static Stream<Arguments> classListings() {
+        return Stream.of(
+                Arguments.of(new ClassSearchRequest(), PageRequest.of(0, 2, Sort.by("className"))),
+                Arguments.of(new ClassSearchRequest(), PageRequest.of(1, 2, Sort.by("className"))),
+                Arguments.of(new ClassSearchRequest(), PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "startDate"))),
+                Arguments.of(ClassSearchRequest.builder().className("lớp").build(), PageRequest.of(0, 10)),
+                Arguments.of(ClassSearchRequest.builder().status(EntityClass.Status.OPEN).build(),
+                        PageRequest.of(0, 10, Sort.by("teacher.fullName"))));
+    }
+
+    @BeforeEach
+    void seed() {
+        entityManager.createNativeQuery(FOLD_FUNCTION).executeUpdate();
+        Role studentRole = role(PredefinedRole.STUDENT_ROLE);
+        Role teacherRole = role(PredefinedRole.TEACHER_ROLE);
+        Role parentRole = role(PredefinedRole.PARENT_ROLE);
+
+        entityManager.persist(User.builder().username("admin").fullName("Quản Trị Viên").email("admin@mail.vn")
+                .role(role(PredefinedRole.ADMIN_ROLE)).build());
+        Teacher an = persist(Teacher.builder().username("teacher.an").fullName("Nguyễn Văn An").email("an@mail.vn")
+                .dob(LocalDate.of(1985, 3, 2)).salary(new BigDecimal("12000000.00")).role(teacherRole).build());
+        Teacher anh = persist(Teacher.builder().username("teacher.anh").fullName("Lê Thị Ánh").email("anh@school.vn")
+                .role(teacherRole).build());
+
+        Student tran = persist(Student.builder().username("student.tran").fullName("Trần An").email("tran@mail.vn")
+                .dob(LocalDate.of(2010, 5, 20)).gender("MALE").phoneNumber("0900000001").role(studentRole)
+                .classDiscounts(new ArrayList<>(List.of(new ClassDiscount("c-1", 10), new ClassDiscount("c-2", 25))))
+                .build());
+        Student pham = persist(Student.builder().username("student.pham").fullName("Phạm Ân").email("pham@school.vn")
+                .dob(LocalDate.of(2011, 1, 9)).role(studentRole).classDiscounts(new ArrayList<>()).build());
+        Student khoa = persist(Student.builder().username("student.khoa").fullName("Đỗ Minh Khoa").email("khoa@mail.vn")
+                .dob(LocalDate.of(2010, 5, 20)).role(studentRole)
+                .classDiscounts(new ArrayList<>(List.of(new ClassDiscount("c-3", 5)))).build());
+        persist(Student.builder().username("student.bao").fullName("Hoàng Bảo An").role(studentRole)
+                .classDiscounts(new ArrayList<>()).build());
+
+        Parent lan = persist(Parent.builder().username("parent.lan").fullName("Vũ Thị Lan").email("lan@mail.vn")
+                .role(parentRole).studentIds(new ArrayList<>(List.of(tran.getUserId(), khoa.getUserId()))).build());
+        persist(Parent.builder().username("parent.binh").fullName("Ngô Văn Bình").email("binh@school.vn")
+                .role(parentRole).studentIds(new ArrayList<>()).build());
+        tran.setParentId(lan.getUserId());
+        khoa.setParentId(lan.getUserId());
+
+        persist(entityClass("Lớp Giao tiếp", an, List.of(tran, pham), List.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY),
+                LocalDate.of(2026, 9, 1), EntityClass.Status.OPEN));
+        // Lớp chưa có giáo viên, học viên hay lịch học
+        persist(entityClass("Lớp IELTS", null, List.of(), List.of(), LocalDate.of(2026, 11, 1),
+                EntityClass.Status.UPCOMING));
+        persist(entityClass("Lớp Ngữ pháp", anh, List.of(khoa), List.of(DayOfWeek.SATURDAY),
+                LocalDate.of(2026, 8, 15), EntityClass.Status.OPEN));
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @ParameterizedTest
+    @MethodSource("userListings")
+    void studentsMatchTheEntityListing(UserSearchRequest request, Pageable pageable) {
+        assertSameListing(() -> studentService.getAllStudents(request, pageable),
+                () -> studentRepository.findAll(UserSpecification.matching(request), UserSpecification.page(request, pageable)),
+                userMapper::toStudentResponse);
+    }
+
+    @ParameterizedTest
+    @MethodSource("userListings")
+    void teachersMatchTheEntityListing(UserSearchRequest request, Pageable pageable) {
+        assertSameListing(() -> teacherService.getAllTeachers(request, pageable),
+                () -> teacherRepository.findAll(UserSpecification.matching(request), UserSpecification.page(request, pageable)),
+                userMapper::toTeacherResponse);
+    }
+
+    @ParameterizedTest
+    @MethodSource("userListings")
+    void parentsMatchTheEntityListing(UserSearchRequest request, Pageable pageable) {
+        assertSameListing(() -> parentService.getAllParents(request, pageable),
+                () -> parentRepository.findAll(UserSpecification.matching(request), UserSpecification.page(request, pageable)),
+                userMapper::toParentResponse);
+    }
+
+    @ParameterizedTest
+    @MethodSource("allUsers")
+    void usersMatchTheEntityListing(Pageable pageable) {
+        assertSameListing(() -> userService.getUsers(pageable), () -> userRepository.findAll(pageable),
+                userMapper::toUserResponse);
+    }
+
+    @ParameterizedTest
+    @MethodSource("classListings")
+    void classesMatchTheEntityListing(ClassSearchRequest request, Pageable pageable) {
+        assertSameListing(() -> classService.getClasses(request, pageable),
+                () -> classRepository.findAll(ClassSpecification.matching(request), ClassSpecification.SORTABLE.apply(pageable)),
+                classMapper::toClassResponse);
+    }
+
+    private <T, R> void assertSameListing(Supplier<Page<R>> projected, Supplier<Page<T>> entities,
+                                          Function<T, R> mapper) {
+        Page<R> actual = projected.get();
+        entityManager.clear();
+        Page<R> expected = entities.get().map(mapper);
+
+        // Bộ lọc nào cũng khớp ít nhất một dòng; trang sau cùng có thể trống
+        assertThat(expected.getTotalElements()).isPositive();
+        assertThat(actual.getTotalElements()).isEqualTo(expected.getTotalElements());
+        // Collection phần tử (@ElementCollection, bảng nối) không có thứ tự cố định ở cả hai cách đọc
+        assertThat(actual.getContent()).usingRecursiveComparison()
+                .ignoringCollectionOrderInFields("studentIds", "classDiscounts", "daysOfWeek")
+                .isEqualTo(expected.getContent());
+    }
+
+    private Role role(String name) {
+        return persist(Role.builder().name(name).permissions(Set.of()).build());
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        return entity;
+    }
+
+    private static EntityClass entityClass(String name, Teacher teacher, List<Student> students,
+                                           List<DayOfWeek> daysOfWeek, LocalDate startDate, EntityClass.Status status) {
+        return EntityClass.builder()
+                .className(name)
+                .year(2026)
+                .grade(2)
+                .roomName("P" + name.length())
+                .status(status)
+                .unitPrice(new BigDecimal("150000.00"))
+                .teacher(teacher)
+                .students(new ArrayList<>(students))
+                .daysOfWeek(new ArrayList<>(daysOfWeek))
+                .startDate(startDate)
+                .endDate(startDate.plusMonths(3))
+                .startTime(LocalTime.of(17, 30))
+                .endTime(LocalTime.of(19, 30))
+                .build();
+    }
+}
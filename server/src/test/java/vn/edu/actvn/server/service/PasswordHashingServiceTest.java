@@ -0,0 +1,161 @@
+package vn.edu.actvn.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BCrypt runs on a fixed-size pool with a bounded queue: never more hashes at once than threads, and a caller that
+ * finds the queue full is turned away with {@code TOO_MANY_REQUESTS} instead of waiting.
+ */
+class PasswordHashingServiceTest {
+    static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    PasswordHashingService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) service.shutdown();
+    }
+
+    @Test
+    void hashesOnThePoolAndStillMatches() {
+        List<String> hashingThreads = new ArrayList<>();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        service = start(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashingThreads.add(Thread.currentThread().getName());
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                hashingThreads.add(Thread.currentThread().getName());
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        }, 2, 4);
+
+        String hash = service.encode("secret");
+
+        assertThat(service.matches("secret", hash)).isTrue();
+        assertThat(service.matches("wrong", hash)).isFalse();
+        assertThat(hashingThreads).hasSize(3).allSatisfy(name -> assertThat(name).startsWith("password-hash-"));
+    }
+
+    @Test
+    void neverHashesMoreThanPoolSizeAtOnce() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        service = start(encoder(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(50);
+            running.decrementAndGet();
+        }), 2, 16);
+
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> service.encode("secret"), runnable -> new Thread(runnable).start()));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        assertThat(maxRunning).hasValue(2);
+    }
+
+    @Test
+    void fullQueueIsRejectedAtOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        service = start(encoder(() -> {
+            started.countDown();
+            await(release);
+        }), 1, 1);
+
+        // Một cái đang băm, một cái nằm trong hàng đợi
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> service.encode("a"),
+                runnable -> new Thread(runnable).start());
+        assertThat(started.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> service.encode("b"),
+                runnable -> new Thread(runnable).start());
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "executor");
+        while (executor.getQueue().isEmpty()) {
+            sleep(5);
+        }
+
+        assertThatThrownBy(() -> service.encode("c"))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.TOO_MANY_REQUESTS);
+
+        release.countDown();
+        assertThat(running.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS)).isEqualTo("hash");
+    }
+
+    @Test
+    void encoderFailureReachesTheCallerUnwrapped() {
+        IllegalArgumentException failure = new IllegalArgumentException("bad salt");
+        service = start(encoder(() -> {
+            throw failure;
+        }), 1, 1);
+
+        assertThatThrownBy(() -> service.encode("secret")).isSameAs(failure);
+    }
+
+    private static PasswordHashingService start(PasswordEncoder encoder, int threads, int queueCapacity) {
+        PasswordHashingService service = new PasswordHashingService(encoder, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        service.init();
+        return service;
+    }
+
+    private static PasswordEncoder encoder(Runnable work) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                work.run();
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                work.run();
+                return true;
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
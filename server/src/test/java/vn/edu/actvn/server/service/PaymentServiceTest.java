@@ -0,0 +1,114 @@
+package vn.edu.actvn.server.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import vn.edu.actvn.server.dto.request.payment.CreatePaymentRequest;
+import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.entity.Payment;
+import vn.edu.actvn.server.entity.TuitionFee;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+import vn.edu.actvn.server.mapper.PaymentMapper;
+import vn.edu.actvn.server.repository.PaymentRepository;
+import vn.edu.actvn.server.repository.TuitionFeeRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A payment against a fee whose class and month are still queued for recalculation is refused at once, so the
+ * request thread never waits for the worker and the payment is never taken off a stale remaining amount.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentServiceTest {
+    static final LocalDate MONTH = LocalDate.of(2026, 10, 1);
+
+    @Mock
+    PaymentRepository paymentRepository;
+
+    @Mock
+    TuitionFeeRepository tuitionFeeRepository;
+
+    @Mock
+    PaymentMapper paymentMapper;
+
+    @Mock
+    FinanceRollupService financeRollupService;
+
+    @Mock
+    TuitionRecalculationQueue tuitionRecalculationQueue;
+
+    @InjectMocks
+    PaymentService paymentService;
+
+    @Test
+    void paymentIsRefusedWithoutWaitingWhileFeeIsRecalculating() {
+        when(tuitionFeeRepository.findById("f1")).thenReturn(Optional.of(fee()));
+        when(tuitionRecalculationQueue.isPending("c1", MONTH)).thenReturn(true);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> paymentService.createPayment(request()))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.TUITION_FEE_RECALCULATING);
+
+        assertThat(System.nanoTime() - start).isLessThan(1_000_000_000L);
+        verify(tuitionFeeRepository, never()).save(any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void paymentIsRecordedOnceFeeIsCurrent() {
+        TuitionFee fee = fee();
+        when(tuitionFeeRepository.findById("f1")).thenReturn(Optional.of(fee));
+        when(tuitionRecalculationQueue.isPending("c1", MONTH)).thenReturn(false);
+        when(paymentMapper.toPayment(any())).thenReturn(Payment.builder().paidAmount(new BigDecimal("300")).build());
+
+        paymentService.createPayment(request());
+
+        assertThat(fee.getPaidAmount()).isEqualByComparingTo("300");
+        assertThat(fee.getRemainingAmount()).isEqualByComparingTo("700");
+        verify(paymentRepository).save(any());
+    }
+
+    @Test
+    void paymentOnOverpaidFeeKeepsWhatWasPaid() {
+        TuitionFee fee = fee();
+        fee.setAmount(new BigDecimal("500"));
+        fee.setPaidAmount(new BigDecimal("800"));
+        fee.setRemainingAmount(BigDecimal.ZERO);
+        when(tuitionFeeRepository.findById("f1")).thenReturn(Optional.of(fee));
+        when(paymentMapper.toPayment(any())).thenReturn(Payment.builder().paidAmount(new BigDecimal("300")).build());
+
+        paymentService.createPayment(request());
+
+        assertThat(fee.getPaidAmount()).isEqualByComparingTo("800");
+        assertThat(fee.getRemainingAmount()).isEqualByComparingTo("0");
+    }
+
+    private static CreatePaymentRequest request() {
+        return CreatePaymentRequest.builder().tuitionFeeId("f1").paidAmount(new BigDecimal("300")).build();
+    }
+
+    private static TuitionFee fee() {
+        return TuitionFee.builder()
+                .tuitionFeeId("f1")
+                .entityClass(EntityClass.builder().classId("c1").build())
+                .yearMonth(MONTH)
+                .amount(new BigDecimal("1000"))
+                .paidAmount(BigDecimal.ZERO)
+                .remainingAmount(new BigDecimal("1000"))
+                .build();
+    }
+}
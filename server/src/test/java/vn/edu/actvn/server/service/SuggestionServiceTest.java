@@ -0,0 +1,97 @@
+package vn.edu.actvn.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.event.SearchIndexChangedEvent;
+import vn.edu.actvn.server.repository.ClassRepository;
+import vn.edu.actvn.server.repository.UserRepository;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Changes reach the other nodes' suggestion indexes through {@link ClusterNotifications}; a node only reloads the
+ * whole index when its listener reconnects, not on the first connect right after start-up.
+ */
+@ExtendWith(MockitoExtension.class)
+class SuggestionServiceTest {
+    static final String CHANNEL = "search_index_changed";
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    ClassRepository classRepository;
+
+    @Mock
+    ClusterNotifications clusterNotifications;
+
+    SuggestionService suggestionService;
+
+    ClusterNotifications.Subscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        suggestionService = new SuggestionService(userRepository, classRepository, new SimpleMeterRegistry(),
+                clusterNotifications);
+        ReflectionTestUtils.setField(suggestionService, "notifyEnabled", true);
+        ReflectionTestUtils.setField(suggestionService, "notifyChannel", CHANNEL);
+        suggestionService.init();
+
+        ArgumentCaptor<ClusterNotifications.Subscriber> captor = ArgumentCaptor.forClass(ClusterNotifications.Subscriber.class);
+        verify(clusterNotifications).subscribe(eq(CHANNEL), captor.capture());
+        subscriber = captor.getValue();
+    }
+
+    @Test
+    void localChangeIsPublishedWithoutNodeId() {
+        when(userRepository.findSuggestionSourceById("u1")).thenReturn(Optional.empty());
+
+        suggestionService.onSearchIndexChanged(new SearchIndexChangedEvent(SearchIndexChangedEvent.Target.USER, "u1"));
+
+        verify(clusterNotifications).publish(CHANNEL, "USER:u1");
+    }
+
+    @Test
+    void changeFromAnotherNodeRefreshesThatEntryOnly() {
+        when(classRepository.findSuggestionSourceById("c1")).thenReturn(Optional.empty());
+
+        subscriber.onMessage("CLASS:c1");
+
+        verify(classRepository).findSuggestionSourceById("c1");
+        verify(classRepository, never()).findSuggestionSources();
+        verify(clusterNotifications, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    void malformedMessageIsIgnored() {
+        subscriber.onMessage("PROJECT:p1");
+        subscriber.onMessage("USER");
+
+        verify(userRepository, never()).findSuggestionSourceById(anyString());
+        verify(classRepository, never()).findSuggestionSourceById(anyString());
+    }
+
+    @Test
+    void indexIsRebuiltOnlyAfterReconnecting() {
+        subscriber.onConnected(false);
+        verify(userRepository, never()).findSuggestionSources(any());
+
+        subscriber.onConnected(true);
+        verify(userRepository).findSuggestionSources(any());
+        verify(classRepository).findSuggestionSources();
+    }
+}
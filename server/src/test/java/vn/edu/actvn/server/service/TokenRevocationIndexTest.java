@@ -0,0 +1,152 @@
+package vn.edu.actvn.server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.actvn.server.configuration.ClusterNotifications;
+import vn.edu.actvn.server.constant.TokenPolicy;
+import vn.edu.actvn.server.entity.InvalidatedToken;
+import vn.edu.actvn.server.repository.InvalidatedTokenRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * A token is accepted until {@code exp + TokenPolicy.CLOCK_SKEW}, so a revoked token must stay revoked, in memory and
+ * in the table, until the same moment.
+ */
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationIndexTest {
+    static final Duration INSIDE_SKEW = TokenPolicy.CLOCK_SKEW.dividedBy(2);
+    static final Duration PAST_SKEW = TokenPolicy.CLOCK_SKEW.plusSeconds(30);
+
+    @Mock
+    InvalidatedTokenRepository invalidatedTokenRepository;
+
+    @Mock
+    ClusterNotifications clusterNotifications;
+
+    TokenRevocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TokenRevocationIndex(invalidatedTokenRepository, clusterNotifications);
+    }
+
+    @Test
+    void tokenRevokedJustBeforeExpiryStaysRevokedInsideClockSkew() {
+        index.revoke(token("inside", Instant.now().minus(INSIDE_SKEW)));
+
+        assertThat(index.isRevoked("inside")).isTrue();
+    }
+
+    @Test
+    void revocationIsDroppedOnceClockSkewHasPassed() {
+        index.revoke(token("past", Instant.now().minus(PAST_SKEW)));
+
+        assertThat(index.isRevoked("past")).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void purgeKeepsTokensStillAcceptedWithClockSkew() {
+        index.revoke(token("inside", Instant.now().minus(INSIDE_SKEW)));
+        index.revoke(token("past", Instant.now().minus(PAST_SKEW)));
+        ArgumentCaptor<Date> cutoff = ArgumentCaptor.forClass(Date.class);
+        when(invalidatedTokenRepository.deleteExpiredBefore(cutoff.capture())).thenReturn(1);
+
+        long before = System.currentTimeMillis();
+        index.purgeExpired();
+
+        assertThat(index.isRevoked("inside")).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+        // Dòng trong DB cũng chỉ bị xoá khi đã quá exp + CLOCK_SKEW
+        assertThat(cutoff.getValue().getTime()).isLessThanOrEqualTo(before - INSIDE_SKEW.toMillis())
+                .isGreaterThanOrEqualTo(before - TokenPolicy.CLOCK_SKEW.toMillis());
+    }
+
+    @Test
+    void reloadIncludesTokensInsideClockSkew() {
+        ArgumentCaptor<Date> after = ArgumentCaptor.forClass(Date.class);
+        when(invalidatedTokenRepository.findByExpiryTimeAfter(after.capture()))
+                .thenReturn(List.of(token("inside", Instant.now().minus(INSIDE_SKEW))));
+
+        long before = System.currentTimeMillis();
+        index.reload();
+
+        assertThat(after.getValue().getTime()).isLessThanOrEqualTo(before - INSIDE_SKEW.toMillis());
+        assertThat(index.isRevoked("inside")).isTrue();
+    }
+
+    @Test
+    void appliesRevocationsFromOtherNodes() {
+        index.apply("remote:" + Instant.now().minus(INSIDE_SKEW).toEpochMilli());
+        index.apply("malformed");
+
+        assertThat(index.isRevoked("remote")).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+        verify(invalidatedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void revocationCheckNeverQueriesTheDatabase() {
+        when(invalidatedTokenRepository.findByExpiryTimeAfter(any()))
+                .thenReturn(List.of(token("loaded", Instant.now().plus(Duration.ofMinutes(5)))));
+        index.reload();
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(index.isRevoked("unknown-" + i)).isFalse();
+        }
+        assertThat(index.isRevoked("loaded")).isTrue();
+        assertThat(index.isRevoked(null)).isFalse();
+
+        verify(invalidatedTokenRepository).findByExpiryTimeAfter(any());
+        verifyNoMoreInteractions(invalidatedTokenRepository);
+    }
+
+    @Test
+    void revokedTokenIsPersistedAndSentToOtherNodes() {
+        ReflectionTestUtils.setField(index, "notifyEnabled", true);
+        ReflectionTestUtils.setField(index, "notifyChannel", "token_revoked");
+        Instant expiry = Instant.now().plus(Duration.ofMinutes(5));
+        InvalidatedToken token = token("logout", expiry);
+
+        index.revoke(token);
+
+        assertThat(index.isRevoked("logout")).isTrue();
+        verify(invalidatedTokenRepository).save(token);
+        verify(clusterNotifications).publish("token_revoked", "logout:" + expiry.toEpochMilli());
+    }
+
+    @Test
+    void revocationSurvivesFailedBroadcast() {
+        ReflectionTestUtils.setField(index, "notifyEnabled", true);
+        ReflectionTestUtils.setField(index, "notifyChannel", "token_revoked");
+        doThrow(new IllegalStateException("connection lost")).when(clusterNotifications).publish(anyString(), anyString());
+
+        index.revoke(token("logout", Instant.now().plus(Duration.ofMinutes(5))));
+
+        // Đã lưu DB: các node khác nạp lại khi listener kết nối lại
+        assertThat(index.isRevoked("logout")).isTrue();
+        verify(invalidatedTokenRepository).save(any());
+    }
+
+    static InvalidatedToken token(String id, Instant expiry) {
+        return InvalidatedToken.builder().id(id).type("access").expiryTime(Date.from(expiry)).build();
+    }
+}
@@ -0,0 +1,112 @@
+package vn.edu.actvn.server.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import vn.edu.actvn.server.dto.request.tuitionfee.CreateTuitionFeeRequest;
+import vn.edu.actvn.server.dto.response.tuitionfee.TuitionFeeUpsertResult;
+import vn.edu.actvn.server.entity.EntityClass;
+import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+import vn.edu.actvn.server.mapper.TuitionFeeMapper;
+import vn.edu.actvn.server.repository.StudentAttendanceRepository;
+import vn.edu.actvn.server.repository.StudentRepository;
+import vn.edu.actvn.server.repository.TuitionFeeRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * An upsert that returns no row lost a race with a concurrent insert of the same fee and is called once more; only if
+ * that also returns nothing does the request fail. The race itself runs against PostgreSQL in
+ * {@code TuitionFeeRepositoryConcurrencyTest}.
+ */
+@ExtendWith(MockitoExtension.class)
+class TuitionFeeServiceTest {
+    static final LocalDate MONTH = LocalDate.of(2026, 10, 1);
+
+    @Mock
+    TuitionFeeRepository tuitionFeeRepository;
+
+    @Mock
+    TuitionFeeMapper tuitionFeeMapper;
+
+    @Mock
+    StudentService studentService;
+
+    @Mock
+    ClassService classService;
+
+    @Mock
+    StudentAttendanceRepository studentAttendanceRepository;
+
+    @Mock
+    StudentRepository studentRepository;
+
+    @Mock
+    FinanceRollupService financeRollupService;
+
+    @InjectMocks
+    TuitionFeeService tuitionFeeService;
+
+    @BeforeEach
+    void setUp() {
+        when(studentService.getById("s1")).thenReturn(Student.builder().userId("s1").classDiscounts(List.of()).build());
+        when(classService.getById("c1")).thenReturn(EntityClass.builder().classId("c1").unitPrice(BigDecimal.TEN).build());
+        when(studentAttendanceRepository.countPresentDaysOfStudent(eq("c1"), eq("s1"), eq(MONTH), any())).thenReturn(3L);
+    }
+
+    @Test
+    void upsertThatLostTheRaceIsCalledAgain() {
+        TuitionFeeUpsertResult result = result();
+        when(tuitionFeeRepository.upsert(anyString(), eq("s1"), eq("c1"), eq(MONTH), any(), any()))
+                .thenReturn(Optional.empty(), Optional.of(result));
+
+        tuitionFeeService.createTuitionFee(request());
+
+        verify(tuitionFeeRepository, times(2)).upsert(anyString(), eq("s1"), eq("c1"), eq(MONTH), any(), any());
+        verify(financeRollupService).tuitionTotalsChanged(any(), any());
+    }
+
+    @Test
+    void secondEmptyUpsertFails() {
+        when(tuitionFeeRepository.upsert(anyString(), eq("s1"), eq("c1"), eq(MONTH), any(), any()))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> tuitionFeeService.createTuitionFee(request()))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.UNCATEGORIZED_EXCEPTION);
+        verify(tuitionFeeRepository, times(2)).upsert(anyString(), eq("s1"), eq("c1"), eq(MONTH), any(), any());
+        verify(financeRollupService, never()).tuitionTotalsChanged(any(), any());
+    }
+
+    private static CreateTuitionFeeRequest request() {
+        return CreateTuitionFeeRequest.builder().studentId("s1").classId("c1").yearMonth(MONTH.plusDays(9)).build();
+    }
+
+    private static TuitionFeeUpsertResult result() {
+        TuitionFeeUpsertResult result = mock(TuitionFeeUpsertResult.class);
+        when(result.getTuitionFeeId()).thenReturn("f1");
+        when(result.getAmount()).thenReturn(new BigDecimal("30"));
+        when(result.getPaidAmount()).thenReturn(BigDecimal.ZERO);
+        when(result.getRemainingAmount()).thenReturn(new BigDecimal("30"));
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package vn.edu.actvn.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import vn.edu.actvn.server.entity.TuitionRecalculationJob;
+import vn.edu.actvn.server.event.TuitionRecalculationEvent;
+import vn.edu.actvn.server.repository.TuitionRecalculationJobRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * A job is deleted in the transaction that recalculated it; a failed job stays queued and becomes due again after an
+ * exponential backoff capped at {@code max-backoff}.
+ */
+@ExtendWith(MockitoExtension.class)
+class TuitionRecalculationQueueTest {
+    static final LocalDate MONTH = LocalDate.of(2026, 10, 1);
+
+    @Mock
+    TuitionFeeService tuitionFeeService;
+
+    @Mock
+    TuitionRecalculationJobRepository jobRepository;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    TuitionRecalculationQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new TuitionRecalculationQueue(tuitionFeeService, jobRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        ReflectionTestUtils.setField(queue, "delay", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(queue, "pollInterval", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(queue, "retryBackoff", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(queue, "maxBackoff", Duration.ofMinutes(10));
+        queue.init();
+    }
+
+    @Test
+    void workerDoesNotTouchTheQueueBeforeApplicationIsReady() {
+        verifyNoInteractions(jobRepository, tuitionFeeService);
+    }
+
+    @Test
+    void changeIsQueuedWithConfiguredDelay() {
+        queue.onTuitionRecalculation(new TuitionRecalculationEvent("c1", MONTH.plusDays(17)));
+
+        verify(jobRepository).enqueue("c1", MONTH, 1.0);
+    }
+
+    @Test
+    void pendingCheckLooksUpTheFirstDayOfTheMonth() {
+        when(jobRepository.existsById(new TuitionRecalculationJob.Key("c1", MONTH))).thenReturn(true);
+
+        assertThat(queue.isPending("c1", MONTH.plusDays(17))).isTrue();
+        assertThat(queue.isPending("c2", MONTH)).isFalse();
+    }
+
+    @Test
+    void recalculatedJobIsDeleted() {
+        TuitionRecalculationJob job = job(0);
+        when(jobRepository.lockNextDue()).thenReturn(Optional.of(job));
+
+        assertThat(queue.runNextDue()).isTrue();
+
+        verify(tuitionFeeService).recalculateTuitionFees("c1", MONTH);
+        verify(jobRepository).delete(job);
+        verify(jobRepository, never()).reschedule(anyString(), any(), anyDouble(), anyString());
+    }
+
+    @Test
+    void nothingDueStopsTheRound() {
+        when(jobRepository.lockNextDue()).thenReturn(Optional.empty());
+
+        assertThat(queue.runNextDue()).isFalse();
+
+        verifyNoInteractions(tuitionFeeService);
+    }
+
+    @Test
+    void failedJobIsRescheduledWithBackoff() {
+        when(jobRepository.lockNextDue()).thenReturn(Optional.of(job(2)));
+        when(tuitionFeeService.recalculateTuitionFees("c1", MONTH)).thenThrow(new IllegalStateException("boom"));
+
+        assertThat(queue.runNextDue()).isTrue();
+
+        verify(jobRepository, never()).delete(any());
+        verify(jobRepository).reschedule(eq("c1"), eq(MONTH), eq(20.0), eq("boom"));
+        assertThat(meterRegistry.get("tuition.recalculation.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertThat(queue.backoff(0)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(queue.backoff(1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(queue.backoff(6)).isEqualTo(Duration.ofSeconds(320));
+        assertThat(queue.backoff(7)).isEqualTo(Duration.ofMinutes(10));
+        assertThat(queue.backoff(1_000)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    private static TuitionRecalculationJob job(int attempts) {
+        return TuitionRecalculationJob.builder()
+                .classId("c1")
+                .month(MONTH)
+                .attempts(attempts)
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package vn.edu.actvn.server.utils;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import vn.edu.actvn.server.dto.request.user.UserSearchRequest;
+import vn.edu.actvn.server.dto.response.CursorPage;
+import vn.edu.actvn.server.entity.Student;
+import vn.edu.actvn.server.entity.User;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+import vn.edu.actvn.server.repository.UserRepository;
+import vn.edu.actvn.server.repository.specification.UserSpecification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Walking a listing with the continuation tokens must visit every row exactly once, in sort order, even when many
+ * rows share the sort key and when rows are added ahead of the cursor between two pages. A token only fits the sort
+ * it was issued for.
+ */
+@DataJpaTest(properties = {
+        // year/month là từ khoá của H2
+        "spring.datasource.url=jdbc:h2:mem:keyset-cursor;MODE=PostgreSQL;NON_KEYWORDS=YEAR,MONTH,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // Migration viết cho PostgreSQL, bảng ở đây do ddl-auto tạo
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class KeysetCursorTest {
+    static final int USERS = 23;
+    static final int PAGE_SIZE = 5;
+    // Ít giá trị khác nhau để nhiều dòng trùng khoá sort, chỉ id phân định thứ tự
+    static final List<String> NAMES = List.of("Nguyễn Văn An", "Trần Thị Bình", "Lê An");
+    static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 10, 1, 8, 0);
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < USERS; i++) {
+            entityManager.persist(student("user" + i, NAMES.get(i % NAMES.size()), CREATED_AT.plusHours(i % 4)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"fullName", "createdAt", "username"})
+    void walkVisitsEveryRowOnceInSortOrder(String field) {
+        Sort order = UserSpecification.SCROLLABLE.apply(Sort.by(Sort.Direction.DESC, field));
+
+        List<User> walked = walk(order, null);
+
+        assertThat(walked).hasSize(USERS);
+        assertThat(walked).extracting(User::getUserId).doesNotHaveDuplicates();
+        assertThat(walked).isSortedAccordingTo(comparator(field).reversed());
+    }
+
+    @Test
+    void rowsAddedBeforeTheCursorDoNotShiftLaterPages() {
+        Sort order = UserSpecification.SCROLLABLE.apply(Sort.by("username"));
+        CursorPage<User> first = page(order, null);
+
+        // Sẽ làm lệch trang nếu dùng offset; với keyset trang sau vẫn bắt đầu ngay sau dòng cuối đã trả về
+        entityManager.persist(student("a-new", "Phạm Văn Cường", CREATED_AT));
+        entityManager.flush();
+        entityManager.clear();
+        List<User> rest = walk(order, first.getNextCursor());
+
+        List<String> usernames = new ArrayList<>(first.getContent().stream().map(User::getUsername).toList());
+        rest.forEach(user -> usernames.add(user.getUsername()));
+        assertThat(usernames).doesNotHaveDuplicates()
+                .doesNotContain("a-new")
+                .hasSize(USERS)
+                .isSorted();
+    }
+
+    @Test
+    void emptyCursorStartsAtTheFirstPage() {
+        Sort order = UserSpecification.SCROLLABLE.apply(Sort.by("username"));
+
+        assertThat(page(order, " ").getContent()).extracting(User::getUserId)
+                .containsExactlyElementsOf(page(order, null).getContent().stream().map(User::getUserId).toList());
+    }
+
+    @Test
+    void cursorIssuedForAnotherSortIsRejected() {
+        String cursor = page(UserSpecification.SCROLLABLE.apply(Sort.by("username")), null).getNextCursor();
+
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor, UserSpecification.SCROLLABLE.apply(Sort.by("createdAt")),
+                User.class))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not*base64", "bm90IGpzb24", "eyJzb3J0IjoidXNlcm5hbWU6IEFTQyIsImtleXMiOnt9fQ"})
+    void malformedCursorIsRejected(String cursor) {
+        Sort order = UserSpecification.SCROLLABLE.apply(Sort.by("username"));
+
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor, order, User.class))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+
+    @Test
+    void cursorNamingAnUnknownPropertyIsRejected() {
+        Sort order = UserSpecification.SCROLLABLE.apply(Sort.by("username"));
+        String json = "{\"sort\":\"" + order + "\",\"keys\":{\"nope\":1}}";
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor, order, User.class))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+
+    private List<User> walk(Sort order, String cursor) {
+        List<User> walked = new ArrayList<>();
+        Set<String> cursors = new HashSet<>();
+        CursorPage<User> page;
+        do {
+            page = page(order, cursor);
+            walked.addAll(page.getContent());
+            cursor = page.getNextCursor();
+            assertThat(cursor == null || cursors.add(cursor)).as("cursor repeated").isTrue();
+        } while (page.isHasNext());
+        assertThat(page.getNextCursor()).isNull();
+        return walked;
+    }
+
+    private CursorPage<User> page(Sort order, String cursor) {
+        return KeysetCursor.page(userRepository.scroll(new UserSearchRequest(), order,
+                KeysetCursor.decode(cursor, order, User.class), PAGE_SIZE), order, Function.identity());
+    }
+
+    // Khoá sort theo UserSpecification.SCROLLABLE: fullName sắp theo cột last_name
+    private static Comparator<User> comparator(String field) {
+        return switch (field) {
+            case "fullName" -> Comparator.comparing(User::getLastName);
+            case "createdAt" -> Comparator.comparing(User::getCreatedAt);
+            default -> Comparator.comparing(User::getUsername);
+        };
+    }
+
+    private static Student student(String username, String fullName, LocalDateTime createdAt) {
+        return Student.builder().username(username).fullName(fullName).createdAt(createdAt).build();
+    }
+}
@@ -0,0 +1,44 @@
+package vn.edu.actvn.server.utils;
+
+import org.junit.jupiter.api.Test;
+import vn.edu.actvn.server.constant.Permission;
+
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PermissionBitmaskTest {
+
+    @Test
+    void everySubsetRoundTrips() {
+        for (Set<Permission> permissions : List.of(
+                EnumSet.noneOf(Permission.class),
+                EnumSet.of(Permission.CHANGE_PASSWORD),
+                EnumSet.of(Permission.USER_READ, Permission.CLASS_DELETE, Permission.STUDENT_READ_ALL),
+                EnumSet.allOf(Permission.class))) {
+            assertThat(PermissionBitmask.decode(PermissionBitmask.encode(permissions)))
+                    .containsExactlyElementsOf(permissions);
+        }
+    }
+
+    @Test
+    void allPermissionsFitInAFewCharacters() {
+        // Một bit mỗi quyền thay cho tên quyền trong chuỗi scope
+        assertThat(PermissionBitmask.encode(EnumSet.allOf(Permission.class)))
+                .hasSizeLessThanOrEqualTo((Permission.values().length + 5) / 6 + 1);
+    }
+
+    @Test
+    void unknownBitIsRejected() {
+        BitSet bits = new BitSet();
+        bits.set(Permission.values().length + 3);
+        String bitmask = Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+
+        assertThatThrownBy(() -> PermissionBitmask.decode(bitmask)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,126 @@
+package vn.edu.actvn.server.utils;
+
+import org.junit.jupiter.api.Test;
+import vn.edu.actvn.server.exception.AppException;
+import vn.edu.actvn.server.exception.ErrorCode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Concurrent callers of one key share a single execution, its result or its exception, and the key is free again as
+ * soon as that execution ends.
+ */
+class SingleFlightTest {
+    static final int CALLERS = 8;
+    static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+
+    AtomicInteger computations = new AtomicInteger();
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void concurrentCallersShareOneComputation() throws Exception {
+        List<FutureTask<Object>> calls = startCallers(key -> {
+            computations.incrementAndGet();
+            await(release);
+            return "result " + key;
+        });
+
+        assertThat(results(calls)).hasSize(CALLERS).containsOnly("result 2026");
+        assertThat(computations).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void exceptionReachesEveryWaiterUnwrapped() throws Exception {
+        AppException failure = new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
+        List<FutureTask<Object>> calls = startCallers(key -> {
+            computations.incrementAndGet();
+            await(release);
+            throw failure;
+        });
+
+        // Cùng một exception gốc, không bị bọc trong CompletionException
+        assertThat(results(calls)).hasSize(CALLERS).allSatisfy(result -> assertThat(result).isSameAs(failure));
+        assertThat(computations).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void keyIsReleasedAfterCompletion() {
+        assertThat(singleFlight.execute(1, key -> "first")).isEqualTo("first");
+        try {
+            singleFlight.execute(1, key -> {
+                throw new AppException(ErrorCode.UNCATEGORIZED_EXCEPTION);
+            });
+            fail("loader exception was swallowed");
+        } catch (AppException expected) {
+            // lần gọi lỗi cũng phải nhả khoá
+        }
+
+        // Không có gì được cache: mỗi lần gọi sau khi lần trước xong đều chạy lại loader
+        assertThat(singleFlight.execute(1, key -> "again")).isEqualTo("again");
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    // Chỉ mở loader khi mọi caller đã đứng chờ: caller đầu trong loader, các caller còn lại trên kết quả của nó
+    private List<FutureTask<Object>> startCallers(Function<Integer, String> loader)
+            throws InterruptedException {
+        List<FutureTask<Object>> calls = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Callable<Object> call = () -> {
+                try {
+                    return singleFlight.execute(2026, loader);
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            };
+            FutureTask<Object> task = new FutureTask<>(call);
+            calls.add(task);
+            threads.add(Thread.ofPlatform().daemon().start(task));
+        }
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertThat(System.nanoTime() - deadline).as("callers never blocked").isNegative();
+            Thread.sleep(10);
+        }
+        assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+        release.countDown();
+        return calls;
+    }
+
+    private static List<Object> results(List<FutureTask<Object>> calls) throws Exception {
+        List<Object> results = new ArrayList<>();
+        for (FutureTask<Object> call : calls) {
+            try {
+                results.add(call.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                results.add(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}